@@ -0,0 +1,120 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Fen;
+import chess.InvalidMoveException;
+import chess.Move;
+import chess.MoveList;
+import chess.Perft;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rules engine hot paths: move generation, game status and making moves, each
+ * on a quiet opening, a busy middlegame and an endgame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ChessGameBenchmark {
+    @Param({
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"
+    })
+    public String fen;
+
+    private ChessGame game;
+    private List<ChessPosition> pieces;
+    private ChessMove move;
+    private int encodedMove;
+    private MoveList moves;
+
+    @Setup
+    public void setup() {
+        game = Fen.parse(fen);
+        moves = new MoveList();
+
+        // Every square holding a piece of the team to move, as a client would ask about
+        pieces = new ArrayList<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                var piece = game.getBoard().getPiece(ChessPosition.of(row, col));
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    pieces.add(ChessPosition.of(row, col));
+                }
+            }
+        }
+
+        game.legalMoves(moves);
+        encodedMove = moves.get(0);
+        move = Move.toChessMove(encodedMove);
+    }
+
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        for (ChessPosition position : pieces) {
+            blackhole.consume(game.validMoves(position));
+        }
+    }
+
+    @Benchmark
+    public int legalMoves() {
+        game.legalMoves(moves);
+        return moves.size();
+    }
+
+    /**
+     * Asks about the team not to move, which skips the status cache so every
+     * call does the full work
+     */
+    @Benchmark
+    public boolean isInCheckmate() {
+        return game.isInCheckmate(opponent(game.getTeamTurn()));
+    }
+
+    @Benchmark
+    public long makeMove() throws InvalidMoveException {
+        game.makeMove(move);
+        long key = game.getZobristKey();
+        game.unmakeMove();
+        return key;
+    }
+
+    @Benchmark
+    public long makeEncodedMove() throws InvalidMoveException {
+        game.makeMove(encodedMove);
+        long key = game.getZobristKey();
+        game.unmakeMove();
+        return key;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long perft3() {
+        return Perft.perft(game, 3);
+    }
+
+    private static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}
@@ -0,0 +1,110 @@
+package benchmarks;
+
+import dataaccess.DataAccessException;
+import dataaccess.memory.MemoryAuthDAO;
+import dataaccess.memory.MemoryGameDAO;
+import model.AuthData;
+import model.GameData;
+import model.UserData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The memory DAOs shared by many request threads at once, as they are when the
+ * server runs against them. Reads are measured alone and mixed with writers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MemoryDAOBenchmark {
+    private static final int USERS = 1000;
+    private static final int GAMES = 500;
+
+    private MemoryAuthDAO authDAO;
+    private MemoryGameDAO gameDAO;
+    private String[] authTokens;
+    private long[] gameIDs;
+
+    @Setup
+    public void setup() throws DataAccessException {
+        authDAO = new MemoryAuthDAO();
+        gameDAO = new MemoryGameDAO();
+        authTokens = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            authTokens[i] = authDAO.createAuth(new UserData("user" + i, "password", "user" + i + "@example.com"))
+                    .authToken();
+        }
+        gameIDs = new long[GAMES];
+        for (int i = 0; i < GAMES; i++) {
+            gameIDs[i] = gameDAO.createGame("game" + i);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public AuthData getAuth() {
+        return authDAO.getAuth(authTokens[ThreadLocalRandom.current().nextInt(USERS)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public GameData getGame() throws DataAccessException {
+        return gameDAO.getGame(gameIDs[ThreadLocalRandom.current().nextInt(GAMES)]);
+    }
+
+    @Benchmark
+    @Group("authChurn")
+    @GroupThreads(3)
+    public AuthData authChurnRead() {
+        return authDAO.getAuth(authTokens[ThreadLocalRandom.current().nextInt(USERS)]);
+    }
+
+    /**
+     * Logs a user in and straight back out, like a short client session
+     */
+    @Benchmark
+    @Group("authChurn")
+    @GroupThreads(1)
+    public Boolean authChurnWrite() {
+        AuthData authData = authDAO.createAuth(new UserData("churn", "password", "churn@example.com"));
+        return authDAO.deleteAuth(authData.authToken());
+    }
+
+    @Benchmark
+    @Group("gameUpdates")
+    @GroupThreads(3)
+    public GameData gameUpdatesRead() throws DataAccessException {
+        return gameDAO.getGame(gameIDs[ThreadLocalRandom.current().nextInt(GAMES)]);
+    }
+
+    @Benchmark
+    @Group("gameUpdates")
+    @GroupThreads(1)
+    public void gameUpdatesWrite() throws DataAccessException {
+        GameData gameData = gameDAO.getGame(gameIDs[ThreadLocalRandom.current().nextInt(GAMES)]);
+        gameDAO.updateGame(gameData);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int listGames() throws DataAccessException {
+        return gameDAO.listGames().size();
+    }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import chess.ChessGame;
+import chess.Fen;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gson round trips of a ChessGame, the way the SQL game DAO stores games and
+ * the websocket handler sends them. The fresh Gson variants build a new Gson
+ * for every call, as the DAO and handler used to, and are kept as the
+ * baseline the shared Gson is measured against.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SerializationBenchmark {
+    private final Gson gson = new Gson();
+    private ChessGame game;
+    private String json;
+
+    @Setup
+    public void setup() {
+        game = Fen.parse("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        json = gson.toJson(game);
+    }
+
+    @Benchmark
+    public String serialize() {
+        return gson.toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame deserialize() {
+        return gson.fromJson(json, ChessGame.class);
+    }
+
+    @Benchmark
+    public String serializeFreshGson() {
+        return new Gson().toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame deserializeFreshGson() {
+        return new Gson().fromJson(json, ChessGame.class);
+    }
+}
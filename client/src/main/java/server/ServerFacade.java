@@ -2,6 +2,7 @@ package server;
 
 import java.io.*;
 import java.net.*;
+import java.nio.charset.StandardCharsets;
 
 import com.google.gson.Gson;
 
@@ -44,16 +45,37 @@ public class ServerFacade {
         return makeRequest("GET", "/game", null, ListGamesResult.class);
     }
 
+    /**
+     * Lists one page of games, any argument left null is not filtered on
+     */
+    public ListGamesResult listGames(Long cursor, Integer limit, Boolean openSeats, String player)
+            throws ServerFacadeException {
+        StringBuilder query = new StringBuilder();
+        appendParam(query, "cursor", cursor);
+        appendParam(query, "limit", limit);
+        appendParam(query, "openSeats", openSeats);
+        appendParam(query, "player", player);
+        return makeRequest("GET", "/game" + query, null, ListGamesResult.class);
+    }
+
     public CreateGameResult createGame(String gameName) throws ServerFacadeException {
         CreateGameRequest request = new CreateGameRequest(null, gameName);
         return makeRequest("POST", "/game", request, CreateGameResult.class);
     }
 
-    public JoinGameResult joinGame(String playerColor, int gameID) throws ServerFacadeException {
+    public JoinGameResult joinGame(String playerColor, long gameID) throws ServerFacadeException {
         JoinGameRequest request = new JoinGameRequest(null, playerColor, gameID);
         return makeRequest("PUT", "/game", request, JoinGameResult.class);
     }
 
+    private static void appendParam(StringBuilder query, String name, Object value) {
+        if (value == null) {
+            return;
+        }
+        query.append(query.isEmpty() ? '?' : '&').append(name).append('=')
+                .append(URLEncoder.encode(value.toString(), StandardCharsets.UTF_8));
+    }
+
     private <T> T makeRequest(String method, String path, Object request, Class<T> responseClass)
             throws ServerFacadeException {
         try {
@@ -4,6 +4,7 @@ import static ui.PreLoginMenu.printCommand;
 import static ui.PostLoginMenu.printChessBoard;
 import static ui.PreLoginMenu.printError;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Scanner;
 
@@ -11,8 +12,10 @@ import chess.ChessGame;
 import chess.ChessMove;
 import chess.ChessPiece;
 import chess.ChessPosition;
+import chess.InvalidMoveException;
 import client.ChessClient;
 import websocket.WebsocketFacade;
+import websocket.messages.MoveAppliedMessage;
 
 public class LiveMenu {
     private final ChessClient client;
@@ -20,7 +23,12 @@ public class LiveMenu {
     private final boolean black;
     private final WebsocketFacade socket;
     private ChessGame currentGame = new ChessGame();
-    private int gameID;
+    private long gameID;
+
+    /**
+     * Set while waiting for the whole game after a move didn't fit
+     */
+    private boolean reloading;
 
     public LiveMenu(ChessClient client, Scanner s, boolean black) throws Exception {
         this.client = client;
@@ -29,7 +37,7 @@ public class LiveMenu {
         socket = new WebsocketFacade(client.port, this);
     }
 
-    public void run(int gameID) throws Exception {
+    public void run(long gameID) throws Exception {
         this.gameID = gameID;
         this.socket.connect(client.server.authToken, gameID);
         String input = "";
@@ -92,6 +100,37 @@ public class LiveMenu {
 
     public void updateGame(ChessGame game) {
         currentGame = game;
+        reloading = false;
+        renderGame(null, true);
+    }
+
+    /**
+     * Makes a move sent by the server on our copy of the game. If the move
+     * doesn't fit, or the game doesn't end up where the server's did, our copy
+     * is out of date and the whole game is asked for again. Moves arriving
+     * before it are already part of it, so they are skipped.
+     */
+    public void applyMove(MoveAppliedMessage delta) {
+        if (reloading) {
+            return;
+        }
+        try {
+            if (currentGame.getPly() + 1 != delta.ply) {
+                throw new InvalidMoveException();
+            }
+            currentGame.makeMove(delta.move);
+            if (currentGame.getZobristKey() != delta.zobristKey) {
+                throw new InvalidMoveException();
+            }
+        } catch (InvalidMoveException e) {
+            reloading = true;
+            try {
+                socket.reloadGame(client.server.authToken, gameID);
+            } catch (IOException ee) {
+                printError("unable to reload the game: " + ee.getMessage());
+            }
+            return;
+        }
         renderGame(null, true);
     }
 
@@ -176,6 +215,6 @@ public class LiveMenu {
             throw new IllegalArgumentException("position out of bounds");
         }
 
-        return new ChessPosition(row, col - 'a' + 1);
+        return ChessPosition.of(row, col - 'a' + 1);
     }
 }
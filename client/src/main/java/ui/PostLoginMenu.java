@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Scanner;
 
 import chess.ChessBoard;
@@ -28,7 +29,7 @@ public class PostLoginMenu {
     private final ChessClient client;
     private final String username;
     private final Scanner s;
-    private HashMap<Integer, Integer> gameMap = new HashMap<>();
+    private HashMap<Integer, Long> gameMap = new HashMap<>();
 
     public PostLoginMenu(ChessClient client, String username, Scanner s) {
         this.client = client;
@@ -144,7 +145,7 @@ public class PostLoginMenu {
 
     private void handleJoin(String name, String color) {
         try {
-            Integer gameID = selectGame(name);
+            Long gameID = selectGame(name);
             if (gameID == null) {
                 return;
             }
@@ -163,7 +164,7 @@ public class PostLoginMenu {
 
     private void handleObserve(String name) {
         try {
-            Integer gameID = selectGame(name);
+            Long gameID = selectGame(name);
             if (gameID == null) {
                 return;
             }
@@ -173,31 +174,39 @@ public class PostLoginMenu {
         }
     }
 
-    private Integer selectGame(String name) throws ServerFacadeException {
-        int gameID = -1;
+    private Long selectGame(String name) throws ServerFacadeException {
+        int number = -1;
         try {
-            gameID = Integer.parseInt(name);
+            number = Integer.parseInt(name);
         } catch (NumberFormatException e) {
             printError("Invalid game ID, should be an integer!");
             return null;
         }
 
-        if (!gameMap.containsKey(gameID)) {
-            printError("No game ID: " + gameID);
+        if (!gameMap.containsKey(number)) {
+            printError("No game ID: " + number);
             return null;
         }
-        gameID = gameMap.get(gameID);
 
-        return gameID;
+        return gameMap.get(number);
     }
 
+    /**
+     * Lists every game, following the server's pages until there are no more
+     */
     private GameData[] gamesList() throws ServerFacadeException {
-        ListGamesResult result = client.server.listGames();
-        if (result.message() != null) {
-            printError(result.message());
-            return new GameData[0];
-        }
-        return result.games().toArray(new GameData[0]);
+        List<GameData> games = new ArrayList<>();
+        Long cursor = null;
+        do {
+            ListGamesResult result = client.server.listGames(cursor, null, null, null);
+            if (result.message() != null) {
+                printError(result.message());
+                return new GameData[0];
+            }
+            games.addAll(result.games());
+            cursor = result.nextCursor();
+        } while (cursor != null);
+        return games.toArray(new GameData[0]);
     }
 
 
@@ -239,7 +248,7 @@ public class PostLoginMenu {
                 int properRow = !blackView ? 8 - r : r + 1;
                 int properCol = !blackView ? c + 1 : 8 - c;
                 alternateColors(out, properRow, properCol, validMoves);
-                ChessPiece piece = board.getPiece(new ChessPosition(properRow, properCol));
+                ChessPiece piece = board.getPiece(ChessPosition.of(properRow, properCol));
                 if (piece != null) {
                     out.print(getPieceEscapeSequence(piece));
                 } else {
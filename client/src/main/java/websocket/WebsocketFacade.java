@@ -9,11 +9,13 @@ import com.google.gson.Gson;
 
 import chess.ChessMove;
 import ui.LiveMenu;
+import websocket.commands.ConnectCommand;
 import websocket.commands.MoveCommand;
 import websocket.commands.UserGameCommand;
 import websocket.commands.UserGameCommand.CommandType;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveAppliedMessage;
 import websocket.messages.NotificationMessage;
 import websocket.messages.ServerMessage;
 
@@ -36,6 +38,11 @@ public class WebsocketFacade extends Endpoint {
                         menu.updateGame(game.game);
                         break;
 
+                    case MOVE_APPLIED:
+                        MoveAppliedMessage delta = new Gson().fromJson(message, MoveAppliedMessage.class);
+                        menu.applyMove(delta);
+                        break;
+
                     case NOTIFICATION:
                         NotificationMessage nm = new Gson().fromJson(message, NotificationMessage.class);
                         menu.displayNotification(nm.message);
@@ -50,22 +57,34 @@ public class WebsocketFacade extends Endpoint {
         });
     }
 
-    public void connect(String authToken, int gameID) throws IOException {
-        UserGameCommand command = new UserGameCommand(CommandType.CONNECT, authToken, gameID);
+    /**
+     * Connects to the game, asking for moves as MOVE_APPLIED rather than the
+     * whole game each time
+     */
+    public void connect(String authToken, long gameID) throws IOException {
+        ConnectCommand command = new ConnectCommand(authToken, gameID, true);
+        session.getBasicRemote().sendText(new Gson().toJson(command));
+    }
+
+    /**
+     * Asks for the whole game again, as a LOAD_GAME
+     */
+    public void reloadGame(String authToken, long gameID) throws IOException {
+        UserGameCommand command = new UserGameCommand(CommandType.RELOAD, authToken, gameID);
         session.getBasicRemote().sendText(new Gson().toJson(command));
     }
 
-    public void makeMove(String authToken, int gameID, ChessMove move) throws IOException {
+    public void makeMove(String authToken, long gameID, ChessMove move) throws IOException {
         MoveCommand command = new MoveCommand(authToken, gameID, move);
         session.getBasicRemote().sendText(new Gson().toJson(command));
     }
 
-    public void leaveGame(String authToken, int gameID) throws IOException {
+    public void leaveGame(String authToken, long gameID) throws IOException {
         UserGameCommand command = new UserGameCommand(CommandType.LEAVE, authToken, gameID);
         session.getBasicRemote().sendText(new Gson().toJson(command));
     }
 
-    public void resignGame(String authToken, int gameID) throws IOException {
+    public void resignGame(String authToken, long gameID) throws IOException {
         UserGameCommand command = new UserGameCommand(CommandType.RESIGN, authToken, gameID);
         session.getBasicRemote().sendText(new Gson().toJson(command));
     }
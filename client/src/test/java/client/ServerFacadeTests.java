@@ -122,7 +122,7 @@ public class ServerFacadeTests {
         final JoinGameResult[] result = new JoinGameResult[1];
         assertDoesNotThrow(() -> {
             facade.register("Test", "password", "test@example.com");
-            int gameID = facade.createGame("Test").gameID();
+            long gameID = facade.createGame("Test").gameID();
             result[0] = facade.joinGame("WHITE", gameID);
         });
         Assertions.assertNull(result[0].message());
@@ -133,7 +133,7 @@ public class ServerFacadeTests {
         final JoinGameResult[] result = new JoinGameResult[1];
         assertDoesNotThrow(() -> {
             facade.register("Test", "password", "test@example.com");
-            int gameID = facade.createGame("Test").gameID();
+            long gameID = facade.createGame("Test").gameID();
             facade.joinGame("WHITE", gameID);
             result[0] = facade.joinGame("WHITE", gameID);
         });
@@ -0,0 +1,239 @@
+package dataaccess;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gathers writes from many threads and runs them as JDBC batches on a single
+ * writer thread.
+ * <p>
+ * The writer takes whatever has been submitted within window of the first
+ * write it sees, up to maxBatchSize writes, and runs them in one transaction.
+ * Consecutive statements with the same SQL go to the database as one
+ * addBatch/executeBatch round trip. Writes run in the order they were
+ * submitted, so writes with the same key are never reordered.
+ * <p>
+ * If the batch fails, it is rolled back and each write is run again on its
+ * own, so one bad write only fails itself. Once a write fails, the later writes
+ * with the same key from the same submit are skipped rather than made out of
+ * order.
+ * <p>
+ * Closing stops the writer thread once it has written everything submitted
+ * before the close.
+ */
+public class BatchWriter {
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final BlockingQueue<Submission> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    public BatchWriter(String name, long windowMillis, int maxBatchSize) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxBatchSize = maxBatchSize;
+
+        writer = new Thread(this::writeLoop, name);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues the writes and waits for the batch they end up in to finish
+     *
+     * @return for each write, null if it was made, otherwise why not
+     * @throws DataAccessException if interrupted while waiting, or the writer is closed
+     */
+    public String[] submit(List<Write> writes) throws DataAccessException {
+        if (closed) {
+            throw new DataAccessException("batch writer is closed");
+        }
+        Submission submission = new Submission(writes, new CompletableFuture<>());
+        queue.add(submission);
+        if (closed && queue.remove(submission)) {
+            // Closed while adding, and nothing will take it now
+            throw new DataAccessException("batch writer is closed");
+        }
+        try {
+            return submission.done().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("interrupted waiting for a database write");
+        } catch (ExecutionException e) {
+            throw new DataAccessException(e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Writes what has already been submitted, then stops the writer thread
+     */
+    public void close() {
+        closed = true;
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Anything submitted as the writer stopped is failed rather than left waiting
+        List<Submission> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.forEach(submission -> submission.done()
+                .completeExceptionally(new DataAccessException("batch writer is closed")));
+    }
+
+    private void writeLoop() {
+        boolean stopping = false;
+        while (!stopping) {
+            List<Submission> batch = new ArrayList<>();
+            try {
+                Submission first = queue.take();
+                batch.add(first);
+                int size = first.writes().size();
+                long deadline = System.nanoTime() + windowNanos;
+                while (size < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Submission next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    size += next.writes().size();
+                }
+            } catch (InterruptedException e) {
+                // Only close interrupts the writer, write what was taken and stop
+                stopping = true;
+            }
+            writeBatch(batch);
+        }
+
+        List<Submission> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        writeBatch(rest);
+    }
+
+    private void writeBatch(List<Submission> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            write(batch);
+        } catch (RuntimeException e) {
+            batch.forEach(submission -> submission.done().completeExceptionally(e));
+        }
+    }
+
+    private void write(List<Submission> batch) {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            List<Write> writes = new ArrayList<>();
+            batch.forEach(submission -> writes.addAll(submission.writes()));
+            try {
+                execute(conn, writes);
+                batch.forEach(submission -> submission.done().complete(new String[submission.writes().size()]));
+            } catch (SQLException e) {
+                // Something in the batch failed, make the writes one at a time so only it fails
+                for (Submission submission : batch) {
+                    submission.done().complete(writeEach(conn, submission.writes()));
+                }
+            }
+        } catch (DataAccessException | SQLException e) {
+            for (Submission submission : batch) {
+                String[] errors = new String[submission.writes().size()];
+                Arrays.fill(errors, e.getMessage());
+                submission.done().complete(errors);
+            }
+        }
+    }
+
+    private static String[] writeEach(Connection conn, List<Write> writes) {
+        String[] errors = new String[writes.size()];
+        Set<Object> failedKeys = new HashSet<>();
+        for (int i = 0; i < writes.size(); i++) {
+            Write write = writes.get(i);
+            if (failedKeys.contains(write.key())) {
+                errors[i] = "skipped after an earlier write failed";
+                continue;
+            }
+            try {
+                execute(conn, List.of(write));
+            } catch (SQLException e) {
+                errors[i] = e.getMessage();
+                failedKeys.add(write.key());
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Runs the writes in one transaction, batching runs of the same SQL
+     */
+    private static void execute(Connection conn, List<Write> writes) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            PreparedStatement preparedStatement = null;
+            String sql = null;
+            try {
+                for (Write write : writes) {
+                    for (Statement statement : write.statements()) {
+                        if (!statement.sql().equals(sql)) {
+                            if (preparedStatement != null) {
+                                preparedStatement.executeBatch();
+                                preparedStatement.close();
+                            }
+                            sql = statement.sql();
+                            preparedStatement = conn.prepareStatement(sql);
+                        }
+                        for (int i = 0; i < statement.params().length; i++) {
+                            preparedStatement.setObject(i + 1, statement.params()[i]);
+                        }
+                        preparedStatement.addBatch();
+                    }
+                }
+                if (preparedStatement != null) {
+                    preparedStatement.executeBatch();
+                }
+            } finally {
+                if (preparedStatement != null) {
+                    preparedStatement.close();
+                }
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException rollbackError) {
+                e.addSuppressed(rollbackError);
+            }
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * One SQL statement and its parameters
+     */
+    public record Statement(String sql, Object... params) {
+    }
+
+    /**
+     * Statements that are made or fail together, and the key that orders them
+     * against other writes, such as a game's ID
+     */
+    public record Write(Object key, List<Statement> statements) {
+    }
+
+    private record Submission(List<Write> writes, CompletableFuture<String[]> done) {
+    }
+}
@@ -0,0 +1,12 @@
+package dataaccess;
+
+/**
+ * Counts of cache reads that were served from memory and that had to go to
+ * the database, and of entries dropped for size or age
+ */
+public record CacheStats(long hits, long misses, long evictions, int size) {
+    public double hitRate() {
+        long reads = hits + misses;
+        return reads == 0 ? 0 : (double) hits / reads;
+    }
+}
@@ -0,0 +1,177 @@
+package dataaccess;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import model.AuthData;
+import model.UserData;
+
+/**
+ * Caches auth token lookups from another AuthDAO.
+ * <p>
+ * A valid token is remembered for ttl, and a token the wrapped DAO returned
+ * null for or threw {@link UnauthorizedException} for is remembered for
+ * negativeTtl, which should be short, so repeated bad tokens don't each cost a
+ * query either. Any other failure is not cached. Deleting a token or clearing
+ * takes effect in the cache immediately.
+ * <p>
+ * A lookup first swaps a loading marker into the token's slot, and only
+ * stores its result if the marker is still there when it finishes. Deleting
+ * the token or clearing removes the marker, so a lookup that was already
+ * loading doesn't put a deleted token back, and lookups of other tokens are
+ * not affected.
+ * <p>
+ * At most maxSize tokens are kept. When it is full, expired tokens are dropped
+ * first, then arbitrary ones.
+ */
+public class CachingAuthDAO implements AuthDAO {
+    private final AuthDAO delegate;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CachingAuthDAO(AuthDAO delegate, int maxSize, long ttlMillis, long negativeTtlMillis) {
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.negativeTtlNanos = negativeTtlMillis * 1_000_000L;
+    }
+
+    @Override
+    public AuthData createAuth(UserData userData) throws DataAccessException {
+        AuthData authData = delegate.createAuth(userData);
+        cache.put(authData.authToken(), new Entry(authData, false, System.nanoTime() + ttlNanos));
+        shrinkIfFull();
+        return authData;
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        if (authToken == null) {
+            return delegate.getAuth(null);
+        }
+
+        Entry entry = cache.get(authToken);
+        if (entry != null && System.nanoTime() - entry.expiresAt() < 0) {
+            hits.incrementAndGet();
+            if (entry.unauthorized()) {
+                throw new UnauthorizedException();
+            }
+            return entry.authData();
+        }
+
+        misses.incrementAndGet();
+        // Already expired, so it is never taken for a cached result
+        Entry loading = new Entry(null, false, System.nanoTime());
+        boolean claimed = entry == null ? cache.putIfAbsent(authToken, loading) == null
+                : cache.replace(authToken, entry, loading);
+        AuthData authData;
+        try {
+            authData = delegate.getAuth(authToken);
+        } catch (UnauthorizedException e) {
+            store(authToken, loading, claimed, new Entry(null, true, System.nanoTime() + negativeTtlNanos));
+            throw e;
+        } catch (DataAccessException | RuntimeException e) {
+            if (claimed) {
+                cache.remove(authToken, loading);
+            }
+            throw e;
+        }
+        long ttl = authData == null ? negativeTtlNanos : ttlNanos;
+        store(authToken, loading, claimed, new Entry(authData, false, System.nanoTime() + ttl));
+        return authData;
+    }
+
+    @Override
+    public Boolean deleteAuth(String authToken) {
+        Boolean deleted = delegate.deleteAuth(authToken);
+        if (authToken != null) {
+            cache.remove(authToken);
+        }
+        return deleted;
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        delegate.clear();
+        cache.clear();
+    }
+
+    /**
+     * @return how well the cache has done since it was created
+     */
+    public CacheStats getStats() {
+        return new CacheStats(hits.get(), misses.get(), evictions.get(), cache.size());
+    }
+
+    /**
+     * Caches a lookup result in place of its loading marker. If the token was
+     * deleted or the cache cleared since the lookup started, the marker is
+     * gone and the result is dropped.
+     */
+    private void store(String authToken, Entry loading, boolean claimed, Entry entry) {
+        if (claimed && cache.replace(authToken, loading, entry)) {
+            shrinkIfFull();
+        }
+    }
+
+    private void shrinkIfFull() {
+        if (cache.size() > maxSize) {
+            shrink();
+        }
+    }
+
+    private void shrink() {
+        long now = System.nanoTime();
+        cache.values().removeIf(entry -> {
+            boolean expired = now - entry.expiresAt() >= 0;
+            if (expired) {
+                evictions.incrementAndGet();
+            }
+            return expired;
+        });
+
+        Iterator<Entry> iterator = cache.values().iterator();
+        while (cache.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * A cached lookup, or a loading marker. A null authData is a token the
+     * wrapped DAO returned null for, and unauthorized marks one it threw
+     * {@link UnauthorizedException} for. Compared by identity, so a marker
+     * only ever matches itself.
+     */
+    private static final class Entry {
+        private final AuthData authData;
+        private final boolean unauthorized;
+        private final long expiresAt;
+
+        private Entry(AuthData authData, boolean unauthorized, long expiresAt) {
+            this.authData = authData;
+            this.unauthorized = unauthorized;
+            this.expiresAt = expiresAt;
+        }
+
+        private AuthData authData() {
+            return authData;
+        }
+
+        private boolean unauthorized() {
+            return unauthorized;
+        }
+
+        private long expiresAt() {
+            return expiresAt;
+        }
+    }
+}
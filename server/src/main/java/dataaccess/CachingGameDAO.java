@@ -0,0 +1,275 @@
+package dataaccess;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import model.GameData;
+
+/**
+ * Caches games read from another GameDAO, so a busy game is loaded and parsed
+ * once rather than on every message about it.
+ * <p>
+ * Callers get the cached GameData itself, not a copy, and moves made on its
+ * game are seen by everyone reading it afterwards. That is only safe with a
+ * single writer per game: all changes to a game, and the updateGame and
+ * appendMove calls that store them, must happen one at a time, as
+ * {@code server.GameMailboxes} arranges. With assertions enabled, two threads
+ * writing the same game at once fail an assertion.
+ * <p>
+ * Updates and moves are written through to the wrapped DAO first, then
+ * cached. If the write fails, the game is dropped from the cache, so the next
+ * read loads what was really stored. Readers that miss on the same game at
+ * the same time share a single load.
+ * <p>
+ * At most maxSize games are kept, the least recently used going first, and a
+ * game not read or written for idleTimeout is loaded again on its next read.
+ */
+public class CachingGameDAO implements GameDAO {
+    private final GameDAO delegate;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Long, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Loads in progress, so a game missed by many readers at once is only
+     * loaded by the first
+     */
+    private final ConcurrentHashMap<Long, CompletableFuture<GameData>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * The thread writing each game, only tracked with assertions enabled
+     */
+    private final ConcurrentHashMap<Long, Thread> writers = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CachingGameDAO(GameDAO delegate, int maxSize, long idleTimeoutMillis) {
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    @Override
+    public long createGame(String gameName) throws DataAccessException {
+        return delegate.createGame(gameName);
+    }
+
+    @Override
+    public GameData getGame(long gameID) throws DataAccessException {
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            Entry entry = cache.get(gameID);
+            if (entry != null && now - entry.lastUsed < idleTimeoutMillis) {
+                entry.lastUsed = now;
+                hits.incrementAndGet();
+                return entry.gameData;
+            }
+            if (entry != null) {
+                cache.remove(gameID);
+                evictions.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        misses.incrementAndGet();
+        CompletableFuture<GameData> load = new CompletableFuture<>();
+        CompletableFuture<GameData> existing = loading.putIfAbsent(gameID, load);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            GameData gameData = delegate.getGame(gameID);
+            if (gameData != null) {
+                // A write that landed while this was loading is newer, keep it
+                gameData = putIfAbsent(gameData);
+            }
+            load.complete(gameData);
+            return gameData;
+        } catch (DataAccessException | RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(gameID, load);
+        }
+    }
+
+    @Override
+    public Collection<GameData> listGames() throws DataAccessException {
+        return delegate.listGames();
+    }
+
+    @Override
+    public List<GameData> listGames(GameQuery query) throws DataAccessException {
+        return delegate.listGames(query);
+    }
+
+    @Override
+    public void updateGame(GameData gameData) throws DataAccessException {
+        assert beginWrite(gameData.gameID()) : "game " + gameData.gameID() + " written by two threads at once";
+        try {
+            delegate.updateGame(gameData);
+            put(gameData);
+        } catch (DataAccessException | RuntimeException e) {
+            invalidate(gameData.gameID());
+            throw e;
+        } finally {
+            endWrite(gameData.gameID());
+        }
+    }
+
+    @Override
+    public void appendMove(GameData gameData, int move) throws DataAccessException {
+        assert beginWrite(gameData.gameID()) : "game " + gameData.gameID() + " written by two threads at once";
+        try {
+            delegate.appendMove(gameData, move);
+            put(gameData);
+        } catch (DataAccessException | RuntimeException e) {
+            invalidate(gameData.gameID());
+            throw e;
+        } finally {
+            endWrite(gameData.gameID());
+        }
+    }
+
+    @Override
+    public List<GameWrite> writeAll(List<GameWrite> writes) {
+        List<GameWrite> failed = delegate.writeAll(writes);
+        Set<GameWrite> notMade = Collections.newSetFromMap(new IdentityHashMap<>());
+        notMade.addAll(failed);
+        for (GameWrite write : writes) {
+            if (notMade.contains(write)) {
+                invalidate(write.gameData().gameID());
+            } else {
+                put(write.gameData());
+            }
+        }
+        return failed;
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        lock.lock();
+        try {
+            cache.clear();
+        } finally {
+            lock.unlock();
+        }
+        delegate.clear();
+    }
+
+    /**
+     * @return how well the cache has done since it was created
+     */
+    public CacheStats getStats() {
+        lock.lock();
+        try {
+            return new CacheStats(hits.get(), misses.get(), evictions.get(), cache.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(GameData gameData) {
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            cache.put(gameData.gameID(), new Entry(gameData, now));
+            evictOverflow(now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Caches a loaded game unless another is already cached for its ID
+     *
+     * @return the game now cached
+     */
+    private GameData putIfAbsent(GameData gameData) {
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            Entry existing = cache.get(gameData.gameID());
+            if (existing != null) {
+                return existing.gameData;
+            }
+            cache.put(gameData.gameID(), new Entry(gameData, now));
+            evictOverflow(now);
+            return gameData;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the least recently used and idle games, the caller holding lock
+     */
+    private void evictOverflow(long now) {
+        // Least recently used first, so stop at the first entry still in use
+        Iterator<Entry> iterator = cache.values().iterator();
+        while (iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            if (cache.size() <= maxSize && now - eldest.lastUsed < idleTimeoutMillis) {
+                break;
+            }
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static GameData await(CompletableFuture<GameData> load) throws DataAccessException {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof DataAccessException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private boolean beginWrite(long gameID) {
+        Thread current = Thread.currentThread();
+        Thread writer = writers.putIfAbsent(gameID, current);
+        return writer == null || writer == current;
+    }
+
+    private void endWrite(long gameID) {
+        writers.remove(gameID, Thread.currentThread());
+    }
+
+    private void invalidate(long gameID) {
+        lock.lock();
+        try {
+            cache.remove(gameID);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Entry {
+        private final GameData gameData;
+        private long lastUsed;
+
+        private Entry(GameData gameData, long lastUsed) {
+            this.gameData = gameData;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
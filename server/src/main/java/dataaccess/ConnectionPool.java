@@ -0,0 +1,520 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded pool of database connections.
+ * <p>
+ * Callers get a proxy for a pooled connection, and closing the proxy hands the
+ * real connection back to the pool instead of closing it, so existing
+ * try-with-resources code keeps working unchanged. At most maxSize real
+ * connections are ever open. When all of them are in use, callers wait up to
+ * waitTimeout for one to come back before giving up.
+ * <p>
+ * A connection that sat idle longer than validationInterval is checked with
+ * {@link Connection#isValid(int)} before it is handed out, and replaced if the
+ * server dropped it. A background thread keeps at least minIdle connections
+ * ready, closes idle ones beyond minIdle once unused for idleTimeout, and warns
+ * once about any connection held longer than leakThreshold, along with where
+ * it was borrowed from.
+ * <p>
+ * Each real connection also keeps its most recently used prepared statements,
+ * up to statementCacheSize of them. Preparing the same SQL again on that
+ * connection hands back the cached statement, and closing it only clears its
+ * parameters and any batch left on it, so the driver and server don't parse
+ * the same SQL over and over.
+ */
+class ConnectionPool {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_PERIOD_MILLIS = 1000;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final String catalog;
+    private final int minIdle;
+    private final int maxSize;
+    private final long waitTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final int statementCacheSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition returned = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Map<PooledConnection, Borrow> borrowed = new ConcurrentHashMap<>();
+    private int open;
+
+    private final ScheduledExecutorService housekeeper;
+
+    ConnectionPool(String url, String user, String password, String catalog, int minIdle, int maxSize,
+                   long waitTimeoutMillis, long validationIntervalMillis, long idleTimeoutMillis,
+                   long leakThresholdMillis, int statementCacheSize) {
+        if (maxSize < 1 || minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("Pool needs 0 <= minIdle <= maxSize and maxSize >= 1");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.catalog = catalog;
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.statementCacheSize = statementCacheSize;
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, 0, HOUSEKEEPING_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting for one to be returned if the pool is at
+     * its maximum size. Close the connection to give it back.
+     *
+     * @return a connection with its catalog set
+     * @throws SQLException if no connection frees up in time or a new one can't be opened
+     */
+    Connection getConnection() throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTimeoutMillis);
+        while (true) {
+            PooledConnection pooled = take(deadline);
+            if (pooled == null) {
+                pooled = new PooledConnection(openPhysical(), statementCacheSize);
+            } else if (!isUsable(pooled)) {
+                discard(pooled);
+                continue;
+            }
+            return lend(pooled);
+        }
+    }
+
+    /**
+     * Takes an idle connection, or reserves room to open a new one
+     *
+     * @return an idle connection, or null if the caller should open one
+     */
+    private PooledConnection take(long deadline) throws SQLException {
+        lock.lock();
+        try {
+            while (true) {
+                PooledConnection pooled = idle.pollFirst();
+                if (pooled != null) {
+                    return pooled;
+                }
+                if (open < maxSize) {
+                    open++;
+                    return null;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new SQLException("Timed out after " + waitTimeoutMillis
+                            + " ms waiting for a database connection, all " + maxSize + " are in use");
+                }
+                returned.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Opens a real connection for a slot already counted in open
+     */
+    private Connection openPhysical() throws SQLException {
+        try {
+            Connection connection = DriverManager.getConnection(url, user, password);
+            if (catalog != null) {
+                connection.setCatalog(catalog);
+            }
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastUsed < validationIntervalMillis) {
+            return true;
+        }
+        try {
+            return pooled.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection lend(PooledConnection pooled) {
+        Handle handle = new Handle(pooled);
+        // Walking the stack is only worth it when leaks are being looked for
+        String origin = leakThresholdMillis > 0 ? caller() : null;
+        borrowed.put(pooled, new Borrow(System.currentTimeMillis(), Thread.currentThread().getName(), origin));
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handle);
+    }
+
+    /**
+     * Takes back a connection whose proxy was closed
+     */
+    private void giveBack(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        pooled.releaseStatements();
+        try {
+            if (pooled.connection.isClosed()) {
+                discard(pooled);
+                return;
+            }
+            if (!pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            discard(pooled);
+            return;
+        }
+
+        pooled.lastUsed = System.currentTimeMillis();
+        lock.lock();
+        try {
+            idle.addFirst(pooled);
+            returned.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        try {
+            pooled.connection.close();
+        } catch (SQLException ignored) {
+            // The connection is being thrown away either way
+        }
+        release();
+    }
+
+    /**
+     * Frees a slot in open, letting a waiting caller open a connection
+     */
+    private void release() {
+        lock.lock();
+        try {
+            open--;
+            returned.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the first frame outside the pool on the borrowing thread's stack
+     */
+    private static String caller() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> !frame.getClassName().startsWith(ConnectionPool.class.getName())
+                        && !frame.getClassName().equals(DatabaseManager.class.getName())
+                        && !frame.getClassName().startsWith("jdk.proxy"))
+                .findFirst()
+                .map(Object::toString)
+                .orElse("unknown"));
+    }
+
+    private void houseKeep() {
+        long now = System.currentTimeMillis();
+        if (leakThresholdMillis > 0) {
+            for (Borrow borrow : borrowed.values()) {
+                if (!borrow.reported && now - borrow.since > leakThresholdMillis) {
+                    borrow.reported = true;
+                    System.err.println("Database connection held for " + (now - borrow.since)
+                            + " ms by thread " + borrow.thread + ", it may have leaked. Borrowed at "
+                            + borrow.origin);
+                }
+            }
+        }
+
+        retireIdle(now);
+
+        while (needsIdle()) {
+            try {
+                giveBack(new PooledConnection(openPhysical(), statementCacheSize));
+            } catch (SQLException | RuntimeException e) {
+                // The database may not be up yet, try again on the next pass. An
+                // exception escaping here would stop the housekeeping for good.
+                return;
+            }
+        }
+    }
+
+    /**
+     * Closes connections beyond minIdle that have sat idle longer than
+     * idleTimeout, least recently used first
+     */
+    private void retireIdle(long now) {
+        if (idleTimeoutMillis <= 0) {
+            return;
+        }
+        Deque<PooledConnection> retired = new ArrayDeque<>();
+        lock.lock();
+        try {
+            // Connections are handed back to the front, so the back has been idle longest
+            while (idle.size() > minIdle && now - idle.peekLast().lastUsed > idleTimeoutMillis) {
+                retired.add(idle.pollLast());
+            }
+        } finally {
+            lock.unlock();
+        }
+        retired.forEach(this::discard);
+    }
+
+    /**
+     * Reserves a slot for a new idle connection when below minIdle
+     */
+    private boolean needsIdle() {
+        lock.lock();
+        try {
+            if (idle.size() < minIdle && open < maxSize) {
+                open++;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A real connection, its cached statements and when it was last handed back
+     */
+    private static final class PooledConnection {
+        private final Connection connection;
+        private final int statementCacheSize;
+        private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+        private long lastUsed = System.currentTimeMillis();
+
+        private PooledConnection(Connection connection, int statementCacheSize) {
+            this.connection = connection;
+            this.statementCacheSize = statementCacheSize;
+        }
+
+        /**
+         * Hands out the cached statement for the SQL, preparing it if needed.
+         * If the cached statement is already out, a separate uncached one is
+         * prepared instead.
+         */
+        private PreparedStatement prepare(String sql) throws SQLException {
+            CachedStatement cached = statements.get(sql);
+            if (statementCacheSize <= 0 || (cached != null && cached.lease != null)) {
+                return connection.prepareStatement(sql);
+            }
+            if (cached == null || cached.statement.isClosed()) {
+                cached = new CachedStatement(connection.prepareStatement(sql));
+                statements.put(sql, cached);
+                evictOverflow();
+            }
+            return cached.lend();
+        }
+
+        /**
+         * Closes the least recently used statements that are not out, until
+         * the cache is back within its size
+         */
+        private void evictOverflow() {
+            Iterator<CachedStatement> iterator = statements.values().iterator();
+            while (statements.size() > statementCacheSize && iterator.hasNext()) {
+                CachedStatement cached = iterator.next();
+                if (cached.lease == null) {
+                    iterator.remove();
+                    cached.closeQuietly();
+                }
+            }
+        }
+
+        /**
+         * Takes back any statements the last borrower forgot to close
+         */
+        private void releaseStatements() {
+            for (CachedStatement cached : statements.values()) {
+                if (cached.lease != null) {
+                    cached.giveBack(cached.lease);
+                }
+            }
+        }
+    }
+
+    /**
+     * A prepared statement kept open for reuse, and the lease it is out on
+     */
+    private static final class CachedStatement {
+        private final PreparedStatement statement;
+        private Lease lease;
+
+        private CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        private PreparedStatement lend() {
+            lease = new Lease(this);
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, lease);
+        }
+
+        private void giveBack(Lease returning) {
+            if (lease != returning) {
+                return;
+            }
+            returning.closed = true;
+            lease = null;
+            try {
+                ResultSet result = statement.getResultSet();
+                if (result != null) {
+                    result.close();
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+            } catch (SQLException e) {
+                // A statement in a bad state is prepared again on next use
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+                // The statement is being thrown away either way
+            }
+        }
+    }
+
+    /**
+     * Forwards calls to a cached statement until closed, then returns it to
+     * the cache
+     */
+    private static final class Lease implements InvocationHandler {
+        private final CachedStatement cached;
+        private boolean closed;
+
+        private Lease(CachedStatement cached) {
+            this.cached = cached;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    cached.giveBack(this);
+                    return null;
+                case "isClosed":
+                    return closed || cached.statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + (closed ? "closed" : cached.statement) + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            try {
+                return method.invoke(cached.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * When, where and by which thread a connection was borrowed, for leak
+     * warnings. Where is null while leak warnings are off.
+     */
+    private static final class Borrow {
+        private final long since;
+        private final String thread;
+        private final String origin;
+        private volatile boolean reported;
+
+        private Borrow(long since, String thread, String origin) {
+            this.since = since;
+            this.thread = thread;
+            this.origin = origin;
+        }
+    }
+
+    /**
+     * Forwards calls to the pooled connection until closed, then returns it to
+     * the pool. Closing twice is harmless, and any other call after closing
+     * fails as it would on a real closed connection.
+     */
+    private final class Handle implements InvocationHandler {
+        private PooledConnection pooled;
+
+        private Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (pooled != null) {
+                        PooledConnection done = pooled;
+                        pooled = null;
+                        giveBack(done);
+                    }
+                    return null;
+                case "isClosed":
+                    return pooled == null || pooled.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + (pooled == null ? "closed" : pooled.connection) + "]";
+                default:
+                    break;
+            }
+            if (pooled == null) {
+                throw new SQLException("Connection is closed");
+            }
+            if (method.getName().equals("prepareStatement") && args.length == 1) {
+                return pooled.prepare((String) args[0]);
+            }
+            try {
+                return method.invoke(pooled.connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package dataaccess;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 public class DatabaseManager {
@@ -8,9 +10,12 @@ public class DatabaseManager {
     private static final String USER;
     private static final String PASSWORD;
     private static final String CONNECTION_URL;
+    private static final ConnectionPool POOL;
+    private static final Properties PROPERTIES = new Properties();
 
     /*
-     * Load the database information for the db.properties file.
+     * Load the database information for the db.properties file. The db.pool.*
+     * settings are optional and size the connection pool.
      */
     static {
         try {
@@ -18,7 +23,7 @@ public class DatabaseManager {
                 if (propStream == null) {
                     throw new Exception("Unable to load db.properties");
                 }
-                Properties props = new Properties();
+                Properties props = PROPERTIES;
                 props.load(propStream);
                 DATABASE_NAME = props.getProperty("db.name");
                 USER = props.getProperty("db.user");
@@ -26,23 +31,39 @@ public class DatabaseManager {
 
                 var host = props.getProperty("db.host");
                 var port = Integer.parseInt(props.getProperty("db.port"));
-                CONNECTION_URL = String.format("jdbc:mysql://%s:%d", host, port);
+                CONNECTION_URL = String.format("jdbc:mysql://%s:%d?rewriteBatchedStatements=true", host, port);
+
+                POOL = new ConnectionPool(CONNECTION_URL, USER, PASSWORD, DATABASE_NAME,
+                        Integer.parseInt(props.getProperty("db.pool.minIdle", "2")),
+                        Integer.parseInt(props.getProperty("db.pool.maxSize", "10")),
+                        Long.parseLong(props.getProperty("db.pool.waitTimeoutMillis", "5000")),
+                        Long.parseLong(props.getProperty("db.pool.validationIntervalMillis", "5000")),
+                        Long.parseLong(props.getProperty("db.pool.idleTimeoutMillis", "300000")),
+                        Long.parseLong(props.getProperty("db.pool.leakThresholdMillis", "30000")),
+                        Integer.parseInt(props.getProperty("db.pool.statementCacheSize", "32")));
             }
         } catch (Exception ex) {
             throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
         }
     }
 
+    /**
+     * Gets a setting from db.properties
+     *
+     * @return the setting, or defaultValue if it is not set
+     */
+    public static String getProperty(String key, String defaultValue) {
+        return PROPERTIES.getProperty(key, defaultValue);
+    }
+
     /**
      * Creates the database if it does not already exist.
      */
     static void createDatabase() throws DataAccessException {
-        try {
-            var statement = "CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME;
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            try (var preparedStatement = conn.prepareStatement(statement)) {
-                preparedStatement.executeUpdate();
-            }
+        var statement = "CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME;
+        try (var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+                var preparedStatement = conn.prepareStatement(statement)) {
+            preparedStatement.executeUpdate();
         } catch (SQLException e) {
             throw new DataAccessException(e.getMessage());
         }
@@ -71,26 +92,72 @@ public class DatabaseManager {
                 """;
         var gameStatement = """
                 CREATE TABLE IF NOT EXISTS gameData (
-                    gameID int NOT NULL UNIQUE,
+                    gameID BIGINT NOT NULL AUTO_INCREMENT,
                     whiteUsername varchar(256),
                     blackUsername varchar(256),
                     gameName varchar(256) NOT NULL,
                     game LONGTEXT NOT NULL,
-                    PRIMARY KEY (gameID)
+                    snapshotPly int NOT NULL DEFAULT 0,
+                    PRIMARY KEY (gameID),
+                    INDEX (whiteUsername),
+                    INDEX (blackUsername)
                 )
                 """;
-        String[] statements = { authStatement, userStatement, gameStatement };
+        var movesStatement = """
+                CREATE TABLE IF NOT EXISTS gameMoves (
+                    gameID BIGINT NOT NULL,
+                    ply int NOT NULL,
+                    move int NOT NULL,
+                    playedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+                    PRIMARY KEY (gameID, ply)
+                )
+                """;
+        String[] statements = { authStatement, userStatement, gameStatement, movesStatement };
         try (var conn = getConnection()) {
             for (var statement : statements) {
                 try (var preparedStatement = conn.prepareStatement(statement)) {
                     preparedStatement.executeUpdate();
                 }
             }
+            upgradeTables(conn);
         } catch (SQLException e) {
             throw new DataAccessException(e.getMessage());
         }
     }
 
+    /**
+     * Brings tables created by older versions up to date, as CREATE TABLE IF
+     * NOT EXISTS leaves an existing table alone
+     */
+    private static void upgradeTables(Connection conn) throws SQLException {
+        upgrade(conn, "gameData", "COLUMN_NAME = 'snapshotPly'",
+                "ALTER TABLE gameData ADD COLUMN snapshotPly int NOT NULL DEFAULT 0");
+        // Game IDs used to be picked at random, those already handed out are kept
+        // and AUTO_INCREMENT carries on from the largest of them
+        upgrade(conn, "gameData", "COLUMN_NAME = 'gameID' AND EXTRA LIKE '%auto_increment%'",
+                "ALTER TABLE gameData MODIFY gameID BIGINT NOT NULL AUTO_INCREMENT");
+        upgrade(conn, "gameMoves", "COLUMN_NAME = 'gameID' AND DATA_TYPE = 'bigint'",
+                "ALTER TABLE gameMoves MODIFY gameID BIGINT NOT NULL");
+    }
+
+    /**
+     * Runs alter unless table already has a column matching columnCondition
+     */
+    private static void upgrade(Connection conn, String table, String columnCondition, String alter)
+            throws SQLException {
+        var query = "SELECT COUNT(*) FROM information_schema.COLUMNS"
+                + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND " + columnCondition;
+        try (var preparedStatement = bind(conn.prepareStatement(query), table);
+                var result = preparedStatement.executeQuery()) {
+            if (result.next() && result.getInt(1) > 0) {
+                return;
+            }
+        }
+        try (var preparedStatement = conn.prepareStatement(alter)) {
+            preparedStatement.executeUpdate();
+        }
+    }
+
     /**
      * Configure and setup database for chess. One stop shop to ensure we are
      * ready to go!
@@ -102,36 +169,103 @@ public class DatabaseManager {
         createTables();
     }
 
-    public static void executeStatement(String string, Object... params) throws DataAccessException {
-        try (var conn = getConnection()) {
-            var preparedStatement = conn.prepareStatement(string);
-            for (int i = 0; i < params.length; i++) {
-                preparedStatement.setObject(i + 1, params[i]);
-            }
+    /**
+     * Runs an insert, update or delete on a pooled connection
+     *
+     * @return the number of rows changed
+     * @throws DataAccessException
+     */
+    public static int executeStatement(String sql, Object... params) throws DataAccessException {
+        try (var conn = getConnection(); var preparedStatement = prepare(conn, sql, params)) {
+            return preparedStatement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException(e.getMessage());
+        }
+    }
+
+    /**
+     * Runs an insert into a table with an AUTO_INCREMENT key
+     *
+     * @return the key the database gave the new row
+     * @throws DataAccessException
+     */
+    public static long executeInsert(String sql, Object... params) throws DataAccessException {
+        try (var conn = getConnection();
+                var preparedStatement = bind(conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS), params)) {
             preparedStatement.executeUpdate();
+            try (var keys = preparedStatement.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new DataAccessException("no key generated for the new row");
+                }
+                return keys.getLong(1);
+            }
         } catch (SQLException e) {
             throw new DataAccessException(e.getMessage());
         }
     }
 
-    public static ResultSet queryStatement(Connection conn, String string, Object... params)
+    /**
+     * Runs a query and maps its first row
+     *
+     * @return the mapped row, or null if the query found nothing
+     * @throws DataAccessException
+     */
+    public static <T> T queryOne(String sql, RowMapper<T> mapper, Object... params) throws DataAccessException {
+        try (var conn = getConnection();
+                var preparedStatement = prepare(conn, sql, params);
+                var result = preparedStatement.executeQuery()) {
+            return result.next() ? mapper.map(result) : null;
+        } catch (SQLException e) {
+            throw new DataAccessException(e.getMessage());
+        }
+    }
+
+    /**
+     * Runs a query and maps every row, in the order the database returns them
+     *
+     * @throws DataAccessException
+     */
+    public static <T> List<T> queryList(String sql, RowMapper<T> mapper, Object... params)
             throws DataAccessException {
+        try (var conn = getConnection();
+                var preparedStatement = prepare(conn, sql, params);
+                var result = preparedStatement.executeQuery()) {
+            List<T> rows = new ArrayList<>();
+            while (result.next()) {
+                rows.add(mapper.map(result));
+            }
+            return rows;
+        } catch (SQLException e) {
+            throw new DataAccessException(e.getMessage());
+        }
+    }
+
+    private static PreparedStatement prepare(Connection conn, String sql, Object... params) throws SQLException {
+        return bind(conn.prepareStatement(sql), params);
+    }
+
+    /**
+     * Binds the statement's parameters in order. The statement is closed again
+     * if binding fails, so the caller only owns it on success.
+     */
+    private static PreparedStatement bind(PreparedStatement preparedStatement, Object... params)
+            throws SQLException {
         try {
-            var preparedStatement = conn.prepareStatement(string);
             for (int i = 0; i < params.length; i++) {
                 preparedStatement.setObject(i + 1, params[i]);
             }
-            ResultSet result = preparedStatement.executeQuery();
-            return result;
+            return preparedStatement;
         } catch (SQLException e) {
-            throw new DataAccessException(e.getMessage());
+            preparedStatement.close();
+            throw e;
         }
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
+     * Borrows a connection to the database from the pool, with the catalog set
+     * based upon the properties specified in db.properties. Connections to the
+     * database should be short-lived, and you must close the connection when you
+     * are done with it, which returns it to the pool.
      * The easiest way to do that is with a try-with-resource block.
      * <br/>
      * <code>
@@ -142,9 +276,7 @@ public class DatabaseManager {
      */
     public static Connection getConnection() throws DataAccessException {
         try {
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            conn.setCatalog(DATABASE_NAME);
-            return conn;
+            return POOL.getConnection();
         } catch (SQLException e) {
             throw new DataAccessException(e.getMessage());
         }
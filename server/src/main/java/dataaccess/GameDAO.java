@@ -3,15 +3,41 @@ package dataaccess;
 import model.GameData;
 
 import java.util.Collection;
+import java.util.List;
 
 public interface GameDAO {
-    int createGame(String gameName) throws DataAccessException;
+    long createGame(String gameName) throws DataAccessException;
 
-    GameData getGame(int gameID) throws DataAccessException;
+    GameData getGame(long gameID) throws DataAccessException;
 
     Collection<GameData> listGames() throws DataAccessException;
 
+    /**
+     * Lists the games matching the query, in gameID order, without loading
+     * the games themselves
+     *
+     * @return each game's ID, name and players, with a null game
+     */
+    List<GameData> listGames(GameQuery query) throws DataAccessException;
+
     void updateGame(GameData gameData) throws DataAccessException;
 
+    /**
+     * Records a move that has already been made on the game in gameData, as
+     * the game's latest ply. Only the move is written, not the whole game.
+     *
+     * @param move the move just made, encoded by {@link chess.Move}
+     */
+    void appendMove(GameData gameData, int move) throws DataAccessException;
+
+    /**
+     * Makes a series of updates and appended moves, batched together where
+     * the DAO can. Writes for the same game are made in the order given, and
+     * once one of them fails the rest for that game are skipped.
+     *
+     * @return the writes that failed or were skipped, empty if all were made
+     */
+    List<GameWrite> writeAll(List<GameWrite> writes);
+
     void clear() throws DataAccessException;
 }
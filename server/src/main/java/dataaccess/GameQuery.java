@@ -0,0 +1,33 @@
+package dataaccess;
+
+import model.GameData;
+
+/**
+ * Which games a listing wants, in gameID order
+ *
+ * @param afterGameID   only games with a greater ID, or null to start at the first
+ * @param limit         the most games to return, or null for all of them
+ * @param openSeatsOnly only games with a color nobody has joined as
+ * @param player        only games this user plays in, or null for any
+ */
+public record GameQuery(Long afterGameID, Integer limit, boolean openSeatsOnly, String player) {
+    public static final GameQuery ALL = new GameQuery(null, null, false, null);
+
+    /**
+     * @return true if the game passes the filters, ignoring afterGameID and limit
+     */
+    public boolean matches(GameData gameData) {
+        if (openSeatsOnly && gameData.whiteUsername() != null && gameData.blackUsername() != null) {
+            return false;
+        }
+        return player == null || player.equals(gameData.whiteUsername()) || player.equals(gameData.blackUsername());
+    }
+
+    /**
+     * @return the game's ID, name and players, without the game itself
+     */
+    public static GameData summaryOf(GameData gameData) {
+        return new GameData(gameData.gameID(), gameData.whiteUsername(), gameData.blackUsername(),
+                gameData.gameName(), null);
+    }
+}
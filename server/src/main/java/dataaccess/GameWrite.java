@@ -0,0 +1,25 @@
+package dataaccess;
+
+import chess.Move;
+import model.GameData;
+
+/**
+ * A change to a stored game, either a whole-game update or a move appended to
+ * it, for writing several at once with {@link GameDAO#writeAll}
+ *
+ * @param gameData the game as it should be stored after the write
+ * @param move     the move just made, encoded by {@link Move}, or {@link Move#NONE} for an update
+ */
+public record GameWrite(GameData gameData, int move) {
+    public static GameWrite update(GameData gameData) {
+        return new GameWrite(gameData, Move.NONE);
+    }
+
+    public static GameWrite move(GameData gameData, int move) {
+        return new GameWrite(gameData, move);
+    }
+
+    public boolean isMove() {
+        return move != Move.NONE;
+    }
+}
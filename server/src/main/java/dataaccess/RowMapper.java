@@ -0,0 +1,16 @@
+package dataaccess;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Turns the current row of a result set into an object. Mappers only read the
+ * row; moving the cursor and closing the result set is left to
+ * {@link DatabaseManager}.
+ *
+ * @param <T> the type each row maps to
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    T map(ResultSet row) throws SQLException;
+}
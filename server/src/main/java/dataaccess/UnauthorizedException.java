@@ -0,0 +1,10 @@
+package dataaccess;
+
+/**
+ * Indicates the credentials looked up, such as an auth token, don't exist
+ */
+public class UnauthorizedException extends DataAccessException {
+    public UnauthorizedException() {
+        super("unauthorized");
+    }
+}
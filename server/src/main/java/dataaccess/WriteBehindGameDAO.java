@@ -0,0 +1,497 @@
+package dataaccess;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import chess.InvalidMoveException;
+import model.GameData;
+
+/**
+ * Keeps active games in memory and writes them to another GameDAO in the
+ * background.
+ * <p>
+ * Moves and updates change the in-memory game and are appended to a local
+ * journal, so callers can carry on without waiting for the database. Each
+ * write is synced to disk before the call returns. Callers writing at the
+ * same time share one sync, so under load most of them don't pay for their
+ * own. A flusher thread passes the writes on to the wrapped DAO in the order
+ * they were made, every maxLag, as one {@link GameDAO#writeAll} batch.
+ * After each flush the journal is rewritten to hold only the writes still
+ * waiting. If the server stops before the flusher catches up, the journal is
+ * replayed into the wrapped DAO when the next WriteBehindGameDAO is created
+ * on it. Writes the wrapped DAO already has are skipped by their ply, so
+ * replaying the same journal twice is harmless.
+ * <p>
+ * A write the wrapped DAO rejects is kept and tried again on later flushes,
+ * along with the later writes for its game. After MAX_ATTEMPTS failures it is
+ * dropped and reported, so one bad write can't hold the journal forever.
+ * <p>
+ * Games stay in memory until they have been idle for idleTimeout with nothing
+ * left to write. Creating and clearing games go straight to the wrapped DAO.
+ */
+public class WriteBehindGameDAO implements GameDAO {
+    static final int MAX_ATTEMPTS = 5;
+
+    private static final Gson GSON = new Gson();
+
+    private final GameDAO delegate;
+    private final Path journalPath;
+    private final long idleTimeoutMillis;
+    private final Map<Long, ActiveGame> active = new ConcurrentHashMap<>();
+
+    /**
+     * Held while writing to the wrapped DAO, so flushes and clear don't overlap
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /**
+     * Held while syncing or replacing the journal file, always taken before journalLock
+     */
+    private final Object syncLock = new Object();
+
+    /**
+     * Guards the journal and pending, which always hold the same writes
+     */
+    private final Object journalLock = new Object();
+    private final Deque<Pending> pending = new ArrayDeque<>();
+    private FileOutputStream journal;
+
+    /**
+     * Writes appended to the journal so far, guarded by journalLock, and how
+     * many of those are known to be on disk, guarded by syncLock
+     */
+    private long writtenCount;
+    private long syncedCount;
+
+    private final ScheduledExecutorService flusher;
+
+    public WriteBehindGameDAO(GameDAO delegate, Path journalPath, long maxLagMillis, long idleTimeoutMillis)
+            throws DataAccessException {
+        this.delegate = delegate;
+        this.journalPath = journalPath;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+
+        recover();
+        try {
+            journal = new FileOutputStream(journalPath.toFile(), false);
+        } catch (IOException e) {
+            throw new DataAccessException("unable to open game journal " + journalPath + ": " + e.getMessage());
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushAndEvict, maxLagMillis, maxLagMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long createGame(String gameName) throws DataAccessException {
+        return delegate.createGame(gameName);
+    }
+
+    @Override
+    public GameData getGame(long gameID) throws DataAccessException {
+        ActiveGame game = active.get(gameID);
+        if (game == null) {
+            GameData gameData = delegate.getGame(gameID);
+            if (gameData == null) {
+                return null;
+            }
+            game = active.computeIfAbsent(gameID, id -> new ActiveGame(gameData));
+        }
+        game.lastUsed = System.currentTimeMillis();
+        return game.gameData;
+    }
+
+    @Override
+    public Collection<GameData> listGames() throws DataAccessException {
+        Map<Long, GameData> games = new LinkedHashMap<>();
+        for (GameData gameData : delegate.listGames()) {
+            ActiveGame game = active.get(gameData.gameID());
+            games.put(gameData.gameID(), game == null ? gameData : game.gameData);
+        }
+        return new ArrayList<>(games.values());
+    }
+
+    /**
+     * Lists from the wrapped DAO, with players that joined or left since the
+     * last flush brought up to date
+     */
+    @Override
+    public List<GameData> listGames(GameQuery query) throws DataAccessException {
+        List<GameData> games = new ArrayList<>();
+        for (GameData gameData : delegate.listGames(query)) {
+            ActiveGame game = active.get(gameData.gameID());
+            GameData current = game == null ? gameData : GameQuery.summaryOf(game.gameData);
+            if (query.matches(current)) {
+                games.add(current);
+            }
+        }
+        return games;
+    }
+
+    @Override
+    public void updateGame(GameData gameData) throws DataAccessException {
+        if (getGame(gameData.gameID()) == null) {
+            throw new DataAccessException("bad request");
+        }
+        enqueue(GameWrite.update(copyOf(gameData)), gameData);
+    }
+
+    @Override
+    public void appendMove(GameData gameData, int move) throws DataAccessException {
+        enqueue(GameWrite.move(copyOf(gameData), move), gameData);
+    }
+
+    @Override
+    public List<GameWrite> writeAll(List<GameWrite> writes) {
+        for (int i = 0; i < writes.size(); i++) {
+            GameWrite write = writes.get(i);
+            try {
+                enqueue(new GameWrite(copyOf(write.gameData()), write.move()), write.gameData());
+            } catch (DataAccessException e) {
+                return writes.subList(i, writes.size());
+            }
+        }
+        return List.of();
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        flushLock.lock();
+        try {
+            synchronized (syncLock) {
+                synchronized (journalLock) {
+                    pending.clear();
+                    active.clear();
+                    rewriteJournal();
+                }
+            }
+            delegate.clear();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes everything made so far through to the wrapped DAO
+     *
+     * @throws DataAccessException if a write fails, it and the later writes for its game are kept to try again
+     */
+    public void flush() throws DataAccessException {
+        flushLock.lock();
+        try {
+            List<Pending> batch;
+            synchronized (journalLock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = new ArrayList<>(pending);
+            }
+
+            List<GameWrite> writes = new ArrayList<>(batch.size());
+            batch.forEach(entry -> writes.add(entry.write()));
+            Set<GameWrite> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+            failed.addAll(delegate.writeAll(writes));
+
+            int kept = 0;
+            synchronized (syncLock) {
+                synchronized (journalLock) {
+                    // Only flush removes from pending, so the batch is still at its front
+                    List<Pending> retry = new ArrayList<>();
+                    for (Pending entry : batch) {
+                        pending.removeFirst();
+                        if (!failed.contains(entry.write())) {
+                            written(entry);
+                        } else if (entry.attempts() + 1 >= MAX_ATTEMPTS) {
+                            System.err.println("Dropping write for game " + entry.write().gameData().gameID()
+                                    + " at ply " + entry.write().gameData().game().getPly() + " after "
+                                    + MAX_ATTEMPTS + " failed attempts");
+                            written(entry);
+                        } else {
+                            retry.add(new Pending(entry.write(), entry.line(), entry.attempts() + 1));
+                        }
+                    }
+                    for (int i = retry.size() - 1; i >= 0; i--) {
+                        pending.addFirst(retry.get(i));
+                    }
+                    kept = retry.size();
+                    rewriteJournal();
+                }
+            }
+            if (kept > 0) {
+                throw new DataAccessException(kept + " game writes failed and are kept to try again");
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Stops the flusher after writing everything still pending
+     */
+    public void close() throws DataAccessException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        synchronized (syncLock) {
+            synchronized (journalLock) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    throw new DataAccessException("unable to close game journal: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes the in-memory game current and records the write in the journal
+     * and the queue for the flusher, returning once the journal is on disk
+     */
+    private void enqueue(GameWrite write, GameData current) throws DataAccessException {
+        long gameID = current.gameID();
+        byte[] line = (GSON.toJson(JournalEntry.of(write)) + "\n").getBytes(StandardCharsets.UTF_8);
+        long count;
+        synchronized (journalLock) {
+            try {
+                journal.write(line);
+            } catch (IOException e) {
+                throw new DataAccessException("unable to write game journal: " + e.getMessage());
+            }
+            count = ++writtenCount;
+            pending.addLast(new Pending(write, line, 0));
+            ActiveGame game = active.compute(gameID, (id, existing) -> existing == null ? new ActiveGame(current)
+                    : existing.replace(current));
+            game.pendingWrites++;
+            game.lastUsed = System.currentTimeMillis();
+        }
+        syncJournal(count);
+    }
+
+    /**
+     * Syncs the journal to disk unless a sync started after the count-th
+     * write already has. A caller waiting here while another syncs usually
+     * finds its write covered by that sync.
+     */
+    private void syncJournal(long count) throws DataAccessException {
+        synchronized (syncLock) {
+            if (syncedCount >= count) {
+                return;
+            }
+            FileOutputStream out;
+            long upTo;
+            synchronized (journalLock) {
+                out = journal;
+                upTo = writtenCount;
+            }
+            try {
+                out.getFD().sync();
+            } catch (IOException e) {
+                throw new DataAccessException("unable to sync game journal: " + e.getMessage());
+            }
+            syncedCount = upTo;
+        }
+    }
+
+    /**
+     * Replaces the journal with one holding just the pending writes. The new
+     * journal is synced before it replaces the old one, so a crash part way
+     * leaves one or the other whole. The caller holds syncLock and journalLock.
+     */
+    private void rewriteJournal() throws DataAccessException {
+        Path replacement = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(replacement.toFile(), false)) {
+            for (Pending entry : pending) {
+                out.write(entry.line());
+            }
+            out.getFD().sync();
+        } catch (IOException e) {
+            throw new DataAccessException("unable to write game journal: " + e.getMessage());
+        }
+
+        try {
+            journal.close();
+            Files.move(replacement, journalPath, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new DataAccessException("unable to replace game journal: " + e.getMessage());
+        } finally {
+            try {
+                journal = new FileOutputStream(journalPath.toFile(), true);
+            } catch (IOException e) {
+                throw new DataAccessException("unable to reopen game journal: " + e.getMessage());
+            }
+        }
+        syncedCount = writtenCount;
+    }
+
+    /**
+     * Counts a write as done for its game, guarded by journalLock
+     */
+    private void written(Pending entry) {
+        ActiveGame game = active.get(entry.write().gameData().gameID());
+        if (game != null) {
+            game.pendingWrites--;
+        }
+    }
+
+    private void flushAndEvict() {
+        try {
+            flush();
+        } catch (DataAccessException | RuntimeException e) {
+            System.err.println("Unable to write games to the database, will retry: " + e.getMessage());
+        }
+
+        long idleSince = System.currentTimeMillis() - idleTimeoutMillis;
+        synchronized (journalLock) {
+            active.values().removeIf(game -> game.pendingWrites == 0 && game.lastUsed < idleSince);
+        }
+    }
+
+    /**
+     * Replays a journal left behind by an earlier run into the wrapped DAO.
+     * Each game's ply is read from the wrapped DAO once, and entries at or
+     * below it are already stored and skipped. An update never takes a game
+     * back to an earlier ply.
+     */
+    private void recover() throws DataAccessException {
+        if (!Files.exists(journalPath)) {
+            return;
+        }
+
+        Map<Long, GameData> games = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JournalEntry entry;
+                try {
+                    entry = GSON.fromJson(line, JournalEntry.class);
+                } catch (JsonParseException e) {
+                    // The last line may be cut short if the server died while writing it
+                    break;
+                }
+                if (entry == null) {
+                    continue;
+                }
+
+                GameData stored = games.get(entry.gameID());
+                if (stored == null) {
+                    stored = delegate.getGame(entry.gameID());
+                    if (stored == null) {
+                        continue;
+                    }
+                    games.put(entry.gameID(), stored);
+                }
+                int storedPly = stored.game().getPly();
+
+                if (entry.kind() == Kind.UPDATE) {
+                    if (entry.ply() >= storedPly) {
+                        delegate.updateGame(entry.gameData());
+                        games.put(entry.gameID(), entry.gameData());
+                    }
+                    continue;
+                }
+
+                if (entry.ply() <= storedPly) {
+                    continue;
+                }
+                try {
+                    stored.game().makeMove(entry.move());
+                } catch (InvalidMoveException e) {
+                    throw new DataAccessException("game journal move for game " + entry.gameID()
+                            + " does not fit the stored game");
+                }
+                delegate.appendMove(stored, entry.move());
+            }
+        } catch (IOException e) {
+            throw new DataAccessException("unable to read game journal " + journalPath + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Copies the game so the flusher writes it as it was now, not as it is
+     * once later moves have been made on it
+     */
+    private static GameData copyOf(GameData gameData) {
+        return new GameData(gameData.gameID(), gameData.whiteUsername(), gameData.blackUsername(),
+                gameData.gameName(), gameData.game().copy());
+    }
+
+    /**
+     * A write waiting for the flusher, its journal line, and how many flushes
+     * it has already failed
+     */
+    private record Pending(GameWrite write, byte[] line, int attempts) {
+    }
+
+    private enum Kind {
+        MOVE,
+        UPDATE
+    }
+
+    private record JournalEntry(Kind kind, long gameID, int ply, int move, GameData gameData) {
+        /**
+         * A move only needs its game, ply and move in the journal, an update
+         * needs the whole game
+         */
+        static JournalEntry of(GameWrite write) {
+            GameData gameData = write.gameData();
+            return write.isMove()
+                    ? new JournalEntry(Kind.MOVE, gameData.gameID(), gameData.game().getPly(), write.move(), null)
+                    : new JournalEntry(Kind.UPDATE, gameData.gameID(), gameData.game().getPly(), 0, gameData);
+        }
+    }
+
+    /**
+     * The current state of a game held in memory
+     */
+    private static final class ActiveGame {
+        private volatile GameData gameData;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        /**
+         * Writes for this game not yet passed to the wrapped DAO, guarded by journalLock
+         */
+        private int pendingWrites;
+
+        private ActiveGame(GameData gameData) {
+            this.gameData = gameData;
+        }
+
+        private ActiveGame replace(GameData gameData) {
+            this.gameData = gameData;
+            return this;
+        }
+    }
+}
@@ -3,11 +3,11 @@ package dataaccess.memory;
 import model.AuthData;
 import model.UserData;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.UUID;
 
 public class MemoryAuthDAO implements dataaccess.AuthDAO {
-    private HashMap<String, AuthData> authDataMap = new HashMap<>();
+    private final ConcurrentHashMap<String, AuthData> authDataMap = new ConcurrentHashMap<>();
 
     public MemoryAuthDAO() {
     }
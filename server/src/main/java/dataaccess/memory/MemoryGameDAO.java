@@ -3,19 +3,27 @@ package dataaccess.memory;
 import chess.ChessGame;
 import model.GameData;
 import dataaccess.DataAccessException;
+import dataaccess.GameQuery;
+import dataaccess.GameWrite;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Random;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class MemoryGameDAO implements dataaccess.GameDAO {
-    private HashMap<Integer, GameData> gameDataMap = new HashMap<>();
+    private final ConcurrentHashMap<Long, GameData> gameDataMap = new ConcurrentHashMap<>();
+    private final AtomicLong nextGameID = new AtomicLong(1);
 
     public MemoryGameDAO() {
     }
 
     @Override
-    public GameData getGame(int gameID) {
+    public GameData getGame(long gameID) {
         return gameDataMap.get(gameID);
     }
 
@@ -28,16 +36,32 @@ public class MemoryGameDAO implements dataaccess.GameDAO {
     }
 
     @Override
-    public int createGame(String gameName) throws DataAccessException {
-        int gameID = new Random().nextInt(1000, 10000);
-        int i = 0;
-        while (gameDataMap.containsKey(gameID) && i < 5) {
-            gameID = new Random().nextInt(1000, 10000);
-            i++;
-        }
-        if (i == 5 && gameDataMap.containsKey(gameID)) {
-            throw new DataAccessException("Error: Could not obtain unique gameID");
+    public void appendMove(GameData gameData, int move) throws DataAccessException {
+        updateGame(gameData);
+    }
+
+    @Override
+    public List<GameWrite> writeAll(List<GameWrite> writes) {
+        List<GameWrite> failed = new ArrayList<>();
+        Set<Long> failedGames = new HashSet<>();
+        for (GameWrite write : writes) {
+            try {
+                if (failedGames.contains(write.gameData().gameID())) {
+                    failed.add(write);
+                } else {
+                    updateGame(write.gameData());
+                }
+            } catch (DataAccessException e) {
+                failed.add(write);
+                failedGames.add(write.gameData().gameID());
+            }
         }
+        return failed;
+    }
+
+    @Override
+    public long createGame(String gameName) {
+        long gameID = nextGameID.getAndIncrement();
         GameData gameData = new GameData(gameID, null, null, gameName, new ChessGame());
         gameDataMap.put(gameID, gameData);
 
@@ -49,6 +73,17 @@ public class MemoryGameDAO implements dataaccess.GameDAO {
         return gameDataMap.values();
     }
 
+    @Override
+    public List<GameData> listGames(GameQuery query) {
+        return gameDataMap.values().stream()
+                .filter(gameData -> query.afterGameID() == null || gameData.gameID() > query.afterGameID())
+                .filter(query::matches)
+                .sorted(Comparator.comparingLong(GameData::gameID))
+                .limit(query.limit() == null ? Long.MAX_VALUE : query.limit())
+                .map(GameQuery::summaryOf)
+                .toList();
+    }
+
     @Override
     public void clear() {
         gameDataMap.clear();
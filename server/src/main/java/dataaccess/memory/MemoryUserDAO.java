@@ -2,14 +2,14 @@ package dataaccess.memory;
 
 import model.UserData;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.mindrot.jbcrypt.BCrypt;
 
 import dataaccess.DataAccessException;
 
 public class MemoryUserDAO implements dataaccess.UserDAO {
-    private HashMap<String, UserData> userDataMap = new HashMap<>();
+    private final ConcurrentHashMap<String, UserData> userDataMap = new ConcurrentHashMap<>();
 
     public MemoryUserDAO() {
     }
@@ -20,7 +20,10 @@ public class MemoryUserDAO implements dataaccess.UserDAO {
             throw new DataAccessException("already taken");
         }
         String password = BCrypt.hashpw(userData.password(), BCrypt.gensalt());
-        userDataMap.put(userData.username(), new UserData(userData.username(), password, userData.email()));
+        UserData user = new UserData(userData.username(), password, userData.email());
+        if (userDataMap.putIfAbsent(userData.username(), user) != null) {
+            throw new DataAccessException("already taken");
+        }
     }
 
     @Override
@@ -1,15 +1,18 @@
 package dataaccess.sql;
 
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.util.UUID;
 
 import dataaccess.DataAccessException;
 import dataaccess.DatabaseManager;
+import dataaccess.RowMapper;
+import dataaccess.UnauthorizedException;
 import model.AuthData;
 import model.UserData;
 
 public class SQLAuthDAO implements dataaccess.AuthDAO {
+    private static final RowMapper<AuthData> AUTH_MAPPER = row -> new AuthData(row.getString("authToken"),
+            row.getString("username"));
+
     public SQLAuthDAO() throws DataAccessException {
         DatabaseManager.configureDatabase();
     }
@@ -25,27 +28,19 @@ public class SQLAuthDAO implements dataaccess.AuthDAO {
 
     @Override
     public AuthData getAuth(String authToken) throws DataAccessException {
-        String statement = "SELECT * FROM authData WHERE authToken = ?";
-        try (Connection conn = DatabaseManager.getConnection()) {
-            var result = DatabaseManager.queryStatement(conn, statement, authToken);
-            if (result.next()) { // Check if there is data in the ResultSet
-                String username = result.getString("username");
-                return new AuthData(authToken, username);
-            } else {
-                throw new DataAccessException("unauthorized");
-            }
-        } catch (SQLException e) {
-            throw new DataAccessException(e.getMessage());
+        String statement = "SELECT username, authToken FROM authData WHERE authToken = ?";
+        AuthData authData = DatabaseManager.queryOne(statement, AUTH_MAPPER, authToken);
+        if (authData == null) {
+            throw new UnauthorizedException();
         }
+        return authData;
     }
 
     @Override
     public Boolean deleteAuth(String authToken) {
         String statement = "DELETE FROM authData WHERE authToken = ?";
         try {
-            getAuth(authToken);
-            DatabaseManager.executeStatement(statement, authToken);
-            return true;
+            return DatabaseManager.executeStatement(statement, authToken) > 0;
         } catch (DataAccessException e) {
             return false;
         }
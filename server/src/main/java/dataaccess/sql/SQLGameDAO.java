@@ -1,84 +1,218 @@
 package dataaccess.sql;
 
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Random;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.google.gson.Gson;
 
 import chess.ChessGame;
+import chess.InvalidMoveException;
+import dataaccess.BatchWriter;
 import dataaccess.DataAccessException;
 import dataaccess.DatabaseManager;
+import dataaccess.GameQuery;
+import dataaccess.GameWrite;
+import dataaccess.RowMapper;
 import model.GameData;
 
+/**
+ * Stores each game as a snapshot in gameData plus the moves made since then in
+ * gameMoves. A move only appends a row to gameMoves, and every
+ * SNAPSHOT_INTERVAL plies the whole game is written out again so loading it
+ * never replays more than that many moves. gameMoves keeps every move ever
+ * made, so a game can also be replayed from the start.
+ * <p>
+ * Updates and moves go through a {@link BatchWriter}, so writes made at about
+ * the same time, by many games, share JDBC batches and a single round trip.
+ */
 public class SQLGameDAO implements dataaccess.GameDAO {
+    private static final int SNAPSHOT_INTERVAL = 20;
+    private static final String UPDATE_STATEMENT =
+            "UPDATE gameData SET whiteUsername = ?, blackUsername = ?, game = ?, snapshotPly = ? WHERE gameID = ?";
+    private static final String APPEND_STATEMENT = "INSERT INTO gameMoves (gameID, ply, move) VALUES (?, ?, ?)";
+    private static final String SNAPSHOT_STATEMENT = "UPDATE gameData SET game = ?, snapshotPly = ? WHERE gameID = ?";
+    private static final Gson GSON = new Gson();
+    private static final RowMapper<GameData> GAME_MAPPER = row -> new GameData(row.getLong("gameID"),
+            row.getString("whiteUsername"), row.getString("blackUsername"), row.getString("gameName"),
+            GSON.fromJson(row.getString("game"), ChessGame.class));
+    private static final RowMapper<GameData> SUMMARY_MAPPER = row -> new GameData(row.getLong("gameID"),
+            row.getString("whiteUsername"), row.getString("blackUsername"), row.getString("gameName"), null);
+    private static final RowMapper<LoggedMove> MOVE_MAPPER = row -> new LoggedMove(row.getLong("gameID"),
+            row.getInt("ply"), row.getInt("move"));
+
+    private final BatchWriter writer;
+
     public SQLGameDAO() throws DataAccessException {
         DatabaseManager.configureDatabase();
+        writer = new BatchWriter("game-batch-writer",
+                Long.parseLong(DatabaseManager.getProperty("db.batch.windowMillis", "2")),
+                Integer.parseInt(DatabaseManager.getProperty("db.batch.maxSize", "200")));
     }
 
     @Override
-    public GameData getGame(int gameID) throws DataAccessException {
-        String statement = "SELECT * FROM gameData WHERE gameID = ?";
-        try (Connection conn = DatabaseManager.getConnection()) {
-            var result = DatabaseManager.queryStatement(conn, statement, gameID);
-            if (result.next()) { // Check if there is data in the ResultSet
-                String whiteUsername = result.getString("whiteUsername");
-                String blackUsername = result.getString("blackUsername");
-                String gameName = result.getString("gameName");
-                ChessGame game = new Gson().fromJson(result.getString("game"), ChessGame.class);
-                return new GameData(gameID, whiteUsername, blackUsername, gameName, game);
-            } else {
-                throw new DataAccessException("bad request");
-            }
-        } catch (SQLException e) {
-            throw new DataAccessException(e.getMessage());
+    public GameData getGame(long gameID) throws DataAccessException {
+        String statement = "SELECT gameID, whiteUsername, blackUsername, gameName, game FROM gameData WHERE gameID = ?";
+        GameData gameData = DatabaseManager.queryOne(statement, GAME_MAPPER, gameID);
+        if (gameData == null) {
+            throw new DataAccessException("bad request");
+        }
+
+        String movesStatement = "SELECT gameID, ply, move FROM gameMoves WHERE gameID = ? AND ply > ? ORDER BY ply";
+        for (LoggedMove move : DatabaseManager.queryList(movesStatement, MOVE_MAPPER, gameID,
+                gameData.game().getPly())) {
+            replay(gameData, move.move());
+        }
+        return gameData;
+    }
+
+    @Override
+    public List<GameData> listGames(GameQuery query) throws DataAccessException {
+        StringBuilder statement = new StringBuilder(
+                "SELECT gameID, whiteUsername, blackUsername, gameName FROM gameData WHERE TRUE");
+        List<Object> params = new ArrayList<>();
+        if (query.afterGameID() != null) {
+            statement.append(" AND gameID > ?");
+            params.add(query.afterGameID());
         }
+        if (query.openSeatsOnly()) {
+            statement.append(" AND (whiteUsername IS NULL OR blackUsername IS NULL)");
+        }
+        if (query.player() != null) {
+            statement.append(" AND (whiteUsername = ? OR blackUsername = ?)");
+            params.add(query.player());
+            params.add(query.player());
+        }
+        statement.append(" ORDER BY gameID");
+        if (query.limit() != null) {
+            statement.append(" LIMIT ?");
+            params.add(query.limit());
+        }
+        return DatabaseManager.queryList(statement.toString(), SUMMARY_MAPPER, params.toArray());
     }
 
     @Override
     public void updateGame(GameData gameData) throws DataAccessException {
-        String statement = "UPDATE gameData SET whiteUsername = ?, blackUsername = ?, game = ? WHERE gameID = ?";
-        String gameString = new Gson().toJson(gameData.game());
+        write(GameWrite.update(gameData));
+    }
 
-        DatabaseManager.executeStatement(statement, gameData.whiteUsername(), gameData.blackUsername(),
-                gameString, gameData.gameID());
+    @Override
+    public void appendMove(GameData gameData, int move) throws DataAccessException {
+        write(GameWrite.move(gameData, move));
     }
 
     @Override
-    public int createGame(String gameName) throws DataAccessException {
-        int gameID = new Random().nextInt(1000, 10000);
+    public List<GameWrite> writeAll(List<GameWrite> writes) {
+        List<BatchWriter.Write> batch = new ArrayList<>(writes.size());
+        for (GameWrite write : writes) {
+            batch.add(toBatch(write));
+        }
 
-        String gameString = new Gson().toJson(new ChessGame());
-        String statement = "INSERT INTO gameData (gameID, whiteUsername, blackUsername, gameName, game) VALUES (?, ?, ?, ?, ?)";
-        DatabaseManager.executeStatement(statement, gameID, null, null, gameName, gameString);
+        List<GameWrite> failed = new ArrayList<>();
+        try {
+            String[] errors = writer.submit(batch);
+            for (int i = 0; i < errors.length; i++) {
+                if (errors[i] != null) {
+                    System.err.println("Unable to write game " + writes.get(i).gameData().gameID() + ": " + errors[i]);
+                    failed.add(writes.get(i));
+                }
+            }
+        } catch (DataAccessException e) {
+            System.err.println("Unable to write games: " + e.getMessage());
+            return writes;
+        }
+        return failed;
+    }
 
-        return gameID;
+    @Override
+    public long createGame(String gameName) throws DataAccessException {
+        String gameString = GSON.toJson(new ChessGame());
+        String statement = "INSERT INTO gameData (whiteUsername, blackUsername, gameName, game) VALUES (?, ?, ?, ?)";
+        return DatabaseManager.executeInsert(statement, null, null, gameName, gameString);
     }
 
     @Override
     public Collection<GameData> listGames() throws DataAccessException {
-        String statement = "SELECT * FROM gameData";
-        try (Connection conn = DatabaseManager.getConnection()) {
-            var result = DatabaseManager.queryStatement(conn, statement);
-            ArrayList<GameData> games = new ArrayList<>();
-            while (result.next()) {
-                int gameID = result.getInt("gameID");
-                String whiteUsername = result.getString("whiteUsername");
-                String blackUsername = result.getString("blackUsername");
-                String gameName = result.getString("gameName");
-                ChessGame game = new Gson().fromJson(result.getString("game"), ChessGame.class);
-                games.add(new GameData(gameID, whiteUsername, blackUsername, gameName, game));
+        // Moves are read before the snapshots. A snapshot written in between is
+        // then newer than some of the moves, which are skipped by their ply.
+        String movesStatement = """
+                SELECT m.gameID, m.ply, m.move FROM gameMoves m JOIN gameData g ON g.gameID = m.gameID
+                WHERE m.ply > g.snapshotPly ORDER BY m.gameID, m.ply
+                """;
+        List<LoggedMove> moves = DatabaseManager.queryList(movesStatement, MOVE_MAPPER);
+
+        String statement = "SELECT gameID, whiteUsername, blackUsername, gameName, game FROM gameData";
+        Map<Long, GameData> games = new LinkedHashMap<>();
+        for (GameData gameData : DatabaseManager.queryList(statement, GAME_MAPPER)) {
+            games.put(gameData.gameID(), gameData);
+        }
+
+        for (LoggedMove move : moves) {
+            GameData gameData = games.get(move.gameID());
+            if (gameData != null && move.ply() > gameData.game().getPly()) {
+                replay(gameData, move.move());
             }
-            return games;
-        } catch (SQLException | DataAccessException e) {
-            throw new DataAccessException(e.getMessage());
         }
+        return games.values();
     }
 
     @Override
     public void clear() throws DataAccessException {
+        DatabaseManager.executeStatement("TRUNCATE TABLE gameMoves");
         DatabaseManager.executeStatement("TRUNCATE TABLE gameData");
     }
+
+    /**
+     * Stops the batch writer once the writes already submitted are made
+     */
+    public void close() {
+        writer.close();
+    }
+
+    private void write(GameWrite write) throws DataAccessException {
+        String error = writer.submit(List.of(toBatch(write)))[0];
+        if (error != null) {
+            throw new DataAccessException(error);
+        }
+    }
+
+    /**
+     * Turns a write into its SQL. A move appends to gameMoves, and every
+     * SNAPSHOT_INTERVAL plies also stores a new snapshot of the game.
+     */
+    private static BatchWriter.Write toBatch(GameWrite write) {
+        GameData gameData = write.gameData();
+        int ply = gameData.game().getPly();
+        List<BatchWriter.Statement> statements = new ArrayList<>(2);
+        if (!write.isMove()) {
+            statements.add(new BatchWriter.Statement(UPDATE_STATEMENT, gameData.whiteUsername(),
+                    gameData.blackUsername(), GSON.toJson(gameData.game()), ply, gameData.gameID()));
+        } else {
+            statements.add(new BatchWriter.Statement(APPEND_STATEMENT, gameData.gameID(), ply, write.move()));
+            if (ply % SNAPSHOT_INTERVAL == 0) {
+                statements.add(new BatchWriter.Statement(SNAPSHOT_STATEMENT, GSON.toJson(gameData.game()), ply,
+                        gameData.gameID()));
+            }
+        }
+        return new BatchWriter.Write(gameData.gameID(), statements);
+    }
+
+    /**
+     * Makes a move from the log on the game loaded from its snapshot
+     */
+    private static void replay(GameData gameData, int move) throws DataAccessException {
+        try {
+            gameData.game().makeMove(move);
+        } catch (InvalidMoveException e) {
+            throw new DataAccessException("move log for game " + gameData.gameID() + " does not match its snapshot");
+        }
+    }
+
+    /**
+     * A row of gameMoves, the move encoded by {@link chess.Move}
+     */
+    private record LoggedMove(long gameID, int ply, int move) {
+    }
 }
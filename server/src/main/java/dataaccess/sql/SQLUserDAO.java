@@ -1,15 +1,17 @@
 package dataaccess.sql;
 
-import java.sql.SQLException;
-import java.sql.Connection;
-
 import org.mindrot.jbcrypt.BCrypt;
 
 import dataaccess.DataAccessException;
 import dataaccess.DatabaseManager;
+import dataaccess.RowMapper;
+import dataaccess.UnauthorizedException;
 import model.UserData;
 
 public class SQLUserDAO implements dataaccess.UserDAO {
+    private static final RowMapper<UserData> USER_MAPPER = row -> new UserData(row.getString("username"),
+            row.getString("password"), row.getString("email"));
+
     public SQLUserDAO() throws DataAccessException {
         DatabaseManager.configureDatabase();
     }
@@ -30,19 +32,12 @@ public class SQLUserDAO implements dataaccess.UserDAO {
 
     @Override
     public UserData getUser(String username) throws DataAccessException {
-        String statement = "SELECT * FROM userData WHERE username = ?";
-        try (Connection conn = DatabaseManager.getConnection()) {
-            var result = DatabaseManager.queryStatement(conn, statement, username);
-            if (result.next()) { // Check if there is data in the ResultSet
-                String password = result.getString("password");
-                String email = result.getString("email");
-                return new UserData(username, password, email);
-            } else {
-                throw new DataAccessException("unauthorized");
-            }
-        } catch (SQLException e) {
-            throw new DataAccessException(e.getMessage());
+        String statement = "SELECT username, password, email FROM userData WHERE username = ?";
+        UserData userData = DatabaseManager.queryOne(statement, USER_MAPPER, username);
+        if (userData == null) {
+            throw new UnauthorizedException();
         }
+        return userData;
     }
 
     @Override
@@ -0,0 +1,175 @@
+package server;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs the work for each game one task at a time, in the order it was
+ * submitted, while different games run in parallel on virtual threads.
+ * <p>
+ * Each game with work waiting has a mailbox, drained by a single virtual
+ * thread, so a game is only ever changed by one thread at a time without
+ * any lock shared between games. A mailbox goes away once it is empty, and
+ * one that has run a batch of tasks in a row goes to the back of the queue
+ * so a busy game can't keep a carrier thread to itself.
+ * <p>
+ * A task must not wait on another task for the same game, as that one only
+ * runs after it. Once closed, new work is rejected, and tasks that were
+ * waiting on it are failed rather than left queued.
+ */
+public class GameMailboxes {
+    private static final int MAX_BATCH = 32;
+
+    private final ConcurrentHashMap<Long, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Queues the task to run after the game's earlier tasks
+     *
+     * @throws RejectedExecutionException if the mailboxes have been closed
+     */
+    public void execute(long gameID, Runnable task) {
+        RejectedExecutionException rejected = enqueue(gameID, new Task(task, e -> { }));
+        if (rejected != null) {
+            throw rejected;
+        }
+    }
+
+    /**
+     * Queues the task to run after the game's earlier tasks
+     *
+     * @return the task's result once it has run, or its failure, which is a
+     * RejectedExecutionException if the mailboxes have been closed
+     */
+    public <T> CompletableFuture<T> submit(long gameID, Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        enqueue(gameID, new Task(() -> {
+            try {
+                result.complete(task.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }, result::completeExceptionally));
+        return result;
+    }
+
+    /**
+     * @return how many games have work queued or running
+     */
+    public int activeGames() {
+        return mailboxes.size();
+    }
+
+    /**
+     * Stops taking work, letting what is already queued finish
+     */
+    public void close() {
+        workers.close();
+    }
+
+    /**
+     * Adds the task to its game's mailbox, starting a thread to drain it if
+     * none is
+     *
+     * @return the rejection if the mailboxes have been closed, after failing
+     * every task in the mailbox with it
+     */
+    private RejectedExecutionException enqueue(long gameID, Task task) {
+        boolean[] start = new boolean[1];
+        Mailbox mailbox = mailboxes.compute(gameID, (id, existing) -> {
+            // Changed only inside compute for its gameID, which serializes access
+            Mailbox box = existing == null ? new Mailbox(id) : existing;
+            box.tasks.add(task);
+            if (!box.running) {
+                box.running = true;
+                start[0] = true;
+            }
+            return box;
+        });
+        if (!start[0]) {
+            return null;
+        }
+        try {
+            workers.execute(() -> drain(mailbox));
+            return null;
+        } catch (RejectedExecutionException e) {
+            abandon(mailbox, e);
+            return e;
+        }
+    }
+
+    private void drain(Mailbox mailbox) {
+        while (true) {
+            for (int i = 0; i < MAX_BATCH; i++) {
+                Task task = next(mailbox);
+                if (task == null) {
+                    return;
+                }
+                try {
+                    task.run().run();
+                } catch (Throwable e) {
+                    System.err.println("Task for game " + mailbox.gameID + " failed: " + e);
+                }
+            }
+            try {
+                workers.execute(() -> drain(mailbox));
+                return;
+            } catch (RejectedExecutionException e) {
+                // Closing, which waits for this thread, so finish the mailbox here
+            }
+        }
+    }
+
+    /**
+     * Removes a mailbox no thread will drain, failing the tasks in it
+     */
+    private void abandon(Mailbox mailbox, RejectedExecutionException e) {
+        Queue<Task> abandoned = new ArrayDeque<>();
+        mailboxes.computeIfPresent(mailbox.gameID, (id, box) -> {
+            abandoned.addAll(box.tasks);
+            box.tasks.clear();
+            box.running = false;
+            return null;
+        });
+        abandoned.forEach(task -> task.reject().accept(e));
+    }
+
+    /**
+     * Takes the mailbox's next task, removing the mailbox if it has none
+     */
+    private Task next(Mailbox mailbox) {
+        Task[] task = new Task[1];
+        mailboxes.computeIfPresent(mailbox.gameID, (id, box) -> {
+            task[0] = box.tasks.poll();
+            if (task[0] == null) {
+                box.running = false;
+                return null;
+            }
+            return box;
+        });
+        return task[0];
+    }
+
+    /**
+     * A queued task, and what to tell its caller if it will never run
+     */
+    private record Task(Runnable run, Consumer<Throwable> reject) {
+    }
+
+    private static final class Mailbox {
+        private final long gameID;
+        private final Queue<Task> tasks = new ArrayDeque<>();
+        private boolean running;
+
+        private Mailbox(long gameID) {
+            this.gameID = gameID;
+        }
+    }
+}
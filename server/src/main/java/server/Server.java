@@ -7,30 +7,57 @@ import dataaccess.sql.SQLGameDAO;
 import dataaccess.sql.SQLUserDAO;
 import model.requests.*;
 import model.results.*;
+import server.websocket.Outbox;
 import server.websocket.WebsocketHandler;
 import service.ClearService;
 import service.GameService;
 import service.UserService;
 import spark.*;
 
+import java.nio.file.Path;
+import java.util.concurrent.CompletionException;
+
 public class Server {
     private UserDAO userDAO;
     private AuthDAO authDAO;
     private GameDAO gameDAO;
+    private SQLGameDAO sqlGameDAO;
     private ClearService clearService;
     private GameService gameService;
     private UserService userService;
     private WebsocketHandler websocketHandler;
+    private final GameMailboxes gameMailboxes = new GameMailboxes();
 
     public Server() {
         try {
             userDAO = new SQLUserDAO();
             authDAO = new SQLAuthDAO();
-            gameDAO = new SQLGameDAO();
+            if (Boolean.parseBoolean(DatabaseManager.getProperty("db.cache.auth.enabled", "true"))) {
+                authDAO = new CachingAuthDAO(authDAO,
+                        Integer.parseInt(DatabaseManager.getProperty("db.cache.auth.maxSize", "10000")),
+                        Long.parseLong(DatabaseManager.getProperty("db.cache.auth.ttlMillis", "60000")),
+                        Long.parseLong(DatabaseManager.getProperty("db.cache.auth.negativeTtlMillis", "2000")));
+            }
+            sqlGameDAO = new SQLGameDAO();
+            gameDAO = sqlGameDAO;
+            if (Boolean.parseBoolean(DatabaseManager.getProperty("db.cache.games.enabled", "true"))) {
+                gameDAO = new CachingGameDAO(gameDAO,
+                        Integer.parseInt(DatabaseManager.getProperty("db.cache.games.maxSize", "1000")),
+                        Long.parseLong(DatabaseManager.getProperty("db.cache.games.idleTimeoutMillis", "600000")));
+            }
+            if (Boolean.parseBoolean(DatabaseManager.getProperty("db.writeBehind.enabled", "false"))) {
+                gameDAO = new WriteBehindGameDAO(gameDAO,
+                        Path.of(DatabaseManager.getProperty("db.writeBehind.journal", "game-journal.log")),
+                        Long.parseLong(DatabaseManager.getProperty("db.writeBehind.maxLagMillis", "250")),
+                        Long.parseLong(DatabaseManager.getProperty("db.writeBehind.idleTimeoutMillis", "600000")));
+            }
             clearService = new ClearService(authDAO, userDAO, gameDAO);
             gameService = new GameService(authDAO, gameDAO);
             userService = new UserService(authDAO, userDAO);
-            websocketHandler = new WebsocketHandler(gameService, authDAO);
+            websocketHandler = new WebsocketHandler(gameService, authDAO, gameMailboxes,
+                    Integer.parseInt(DatabaseManager.getProperty("ws.outbox.maxQueued", "256")),
+                    Outbox.OverflowPolicy.valueOf(DatabaseManager.getProperty("ws.outbox.overflowPolicy",
+                            "DROP_STALE")));
         } catch (Exception e) {
             System.out.println(e);
             // Whelp
@@ -62,6 +89,17 @@ public class Server {
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        gameMailboxes.close();
+        if (gameDAO instanceof WriteBehindGameDAO writeBehind) {
+            try {
+                writeBehind.close();
+            } catch (DataAccessException e) {
+                System.out.println(e);
+            }
+        }
+        if (sqlGameDAO != null) {
+            sqlGameDAO.close();
+        }
     }
 
     private Object clearHandler(Request req, Response res) {
@@ -91,7 +129,15 @@ public class Server {
     }
 
     private Object listGamesHandler(Request req, Response res) {
-        ListGamesRequest request = new ListGamesRequest(req.headers("Authorization"));
+        ListGamesRequest request;
+        try {
+            request = new ListGamesRequest(req.headers("Authorization"), longParam(req, "cursor"),
+                    intParam(req, "limit"), req.queryParams("openSeats") == null ? null
+                            : Boolean.parseBoolean(req.queryParams("openSeats")), req.queryParams("player"));
+        } catch (NumberFormatException e) {
+            res.status(400);
+            return new Gson().toJson(new ListGamesResult(null, "Error: bad request"));
+        }
         ListGamesResult result = gameService.listGames(request);
         errorHandler(result.message(), res);
         return new Gson().toJson(result);
@@ -108,11 +154,28 @@ public class Server {
     private Object joinGameHandler(Request req, Response res) {
         JoinGameRequest base = new Gson().fromJson(req.body(), JoinGameRequest.class);
         JoinGameRequest request = new JoinGameRequest(req.headers("Authorization"), base.playerColor(), base.gameID());
-        JoinGameResult result = gameService.joinGame(request);
+        // Joining changes the game's players, so it waits its turn with the game's websocket commands
+        JoinGameResult result;
+        try {
+            result = gameMailboxes.submit(request.gameID(), () -> gameService.joinGame(request)).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            result = new JoinGameResult("Error: " + cause.getMessage());
+        }
         errorHandler(result.message(), res);
         return new Gson().toJson(result);
     }
 
+    private static Integer intParam(Request req, String name) {
+        String value = req.queryParams(name);
+        return value == null ? null : Integer.valueOf(value);
+    }
+
+    private static Long longParam(Request req, String name) {
+        String value = req.queryParams(name);
+        return value == null ? null : Long.valueOf(value);
+    }
+
     private void errorHandler(String message, Response res) {
         if (message == null) {
             return;
@@ -0,0 +1,215 @@
+package server.websocket;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+/**
+ * Queues messages for one websocket session and sends them with Jetty's
+ * asynchronous send, one at a time and in order. Sending never blocks the
+ * caller, so a client on a slow connection only holds up its own messages.
+ * <p>
+ * At most maxQueued messages wait to be sent. When a message would go over
+ * that, the overflow policy decides: DROP_STALE first drops queued messages
+ * a newer one replaces, such as an older LOAD_GAME for the same game, and
+ * disconnects the session only if that frees nothing. DISCONNECT disconnects
+ * it straight away.
+ */
+public class Outbox {
+    public enum OverflowPolicy {
+        DROP_STALE,
+        DISCONNECT
+    }
+
+    private final Session session;
+    private final int maxQueued;
+    private final OverflowPolicy overflowPolicy;
+
+    /**
+     * Guards everything below
+     */
+    private final Object lock = new Object();
+    private final Deque<Message> queue = new ArrayDeque<>();
+    private Message inFlight;
+    private boolean draining;
+    private boolean closed;
+    private boolean closeWhenSent;
+
+    private long sent;
+    private long dropped;
+    private long maxLagMillis;
+
+    public Outbox(Session session, int maxQueued, OverflowPolicy overflowPolicy) {
+        this.session = session;
+        this.maxQueued = maxQueued;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Queues the message to be sent after those already queued
+     *
+     * @param replaces if not null, a later message with the same key makes
+     *                 this one unnecessary when the queue is full
+     * @return false if the session is closed or was too far behind to take it
+     */
+    public boolean send(String json, Object replaces) {
+        boolean tooFarBehind = false;
+        synchronized (lock) {
+            if (closed || closeWhenSent) {
+                return false;
+            }
+            if (queue.size() < maxQueued || makeRoom(replaces)) {
+                queue.addLast(new Message(json, replaces, System.currentTimeMillis()));
+            } else {
+                closed = true;
+                tooFarBehind = true;
+                dropped += queue.size() + 1;
+                queue.clear();
+            }
+        }
+        if (tooFarBehind) {
+            session.close(StatusCode.POLICY_VIOLATION, "too far behind");
+            return false;
+        }
+        drain();
+        return true;
+    }
+
+    /**
+     * Closes the session once everything queued so far has been sent
+     */
+    public void closeWhenSent() {
+        synchronized (lock) {
+            closeWhenSent = true;
+        }
+        drain();
+    }
+
+    /**
+     * Drops everything queued, for when the session has closed
+     */
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            dropped += queue.size();
+            queue.clear();
+        }
+    }
+
+    /**
+     * @return how far behind the session is, and how it has done so far
+     */
+    public OutboxStats getStats() {
+        synchronized (lock) {
+            return new OutboxStats(queue.size() + (inFlight == null ? 0 : 1), lagMillis(), maxLagMillis, sent,
+                    dropped);
+        }
+    }
+
+    /**
+     * Frees a place in the full queue, guarded by lock
+     *
+     * @return true if there is now room
+     */
+    private boolean makeRoom(Object replaces) {
+        if (overflowPolicy != OverflowPolicy.DROP_STALE || replaces == null) {
+            return false;
+        }
+        int before = queue.size();
+        queue.removeIf(message -> Objects.equals(message.replaces(), replaces));
+        dropped += before - queue.size();
+        return queue.size() < maxQueued;
+    }
+
+    /**
+     * Milliseconds since the oldest message not yet sent was queued, guarded by lock
+     */
+    private long lagMillis() {
+        Message oldest = inFlight != null ? inFlight : queue.peekFirst();
+        return oldest == null ? 0 : System.currentTimeMillis() - oldest.queuedAt();
+    }
+
+    /**
+     * Sends queued messages until one is still in flight. Jetty may finish a
+     * send before sendString returns, and calls back on this thread, so only
+     * one thread drains at a time and callbacks arriving meanwhile leave the
+     * next send to it rather than recursing.
+     */
+    private void drain() {
+        synchronized (lock) {
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        while (true) {
+            Message next;
+            boolean finished = false;
+            synchronized (lock) {
+                if (inFlight != null || closed || queue.isEmpty()) {
+                    draining = false;
+                    if (inFlight == null && !closed && closeWhenSent) {
+                        closed = true;
+                        finished = true;
+                    }
+                    next = null;
+                } else {
+                    next = queue.pollFirst();
+                    inFlight = next;
+                }
+            }
+            if (next == null) {
+                if (finished) {
+                    session.close();
+                }
+                return;
+            }
+            try {
+                session.getRemote().sendString(next.json(), new Callback(next));
+            } catch (RuntimeException e) {
+                // Jetty throws rather than calling back if the session is already closed
+                synchronized (lock) {
+                    inFlight = null;
+                    draining = false;
+                    dropped++;
+                }
+                close();
+                return;
+            }
+        }
+    }
+
+    private final class Callback implements WriteCallback {
+        private final Message message;
+
+        private Callback(Message message) {
+            this.message = message;
+        }
+
+        @Override
+        public void writeSuccess() {
+            synchronized (lock) {
+                inFlight = null;
+                sent++;
+                maxLagMillis = Math.max(maxLagMillis, System.currentTimeMillis() - message.queuedAt());
+            }
+            drain();
+        }
+
+        @Override
+        public void writeFailed(Throwable x) {
+            synchronized (lock) {
+                inFlight = null;
+                dropped++;
+            }
+            close();
+        }
+    }
+
+    private record Message(String json, Object replaces, long queuedAt) {
+    }
+}
@@ -0,0 +1,13 @@
+package server.websocket;
+
+/**
+ * How one session's outbound messages are doing
+ *
+ * @param queued       messages queued or being sent
+ * @param lagMillis    how long the oldest of those has been waiting
+ * @param maxLagMillis the longest any message has taken to send
+ * @param sent         messages sent
+ * @param dropped      messages dropped, replaced by newer ones or lost when the session closed
+ */
+public record OutboxStats(int queued, long lagMillis, long maxLagMillis, long sent, long dropped) {
+}
@@ -0,0 +1,166 @@
+package server.websocket;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import org.eclipse.jetty.websocket.api.Session;
+
+/**
+ * Tracks which websocket sessions are connected to which games, safe to use
+ * from Jetty's websocket threads at the same time.
+ * <p>
+ * Sessions are indexed both by game and by session, so connecting, leaving
+ * and closing only touch the games the session is in, however many games
+ * there are. A game's entry is dropped when its last session leaves.
+ * <p>
+ * Every change for a session runs inside a compute on its connection entry,
+ * so a join and a close racing on the same session can't leave the session
+ * listed in a game after it has gone. A join only goes ahead for a session
+ * that is still live, so a join that runs after the session was removed for
+ * closing doesn't register it again.
+ */
+public class SessionRegistry {
+    private final ConcurrentHashMap<Long, Set<Session>> games = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Session, Connection> connections = new ConcurrentHashMap<>();
+    private final Predicate<Session> live;
+
+    /**
+     * A registry that treats a session as live while it is open
+     */
+    public SessionRegistry() {
+        this(Session::isOpen);
+    }
+
+    /**
+     * @param live whether a session may still join games. Anything that stops
+     *             being true before {@link #remove} is called for a closing
+     *             session keeps it from being registered after it has gone.
+     */
+    public SessionRegistry(Predicate<Session> live) {
+        this.live = live;
+    }
+
+    /**
+     * Adds the session to the game, as the given user
+     *
+     * @return false if the session is no longer live and was not added
+     */
+    public boolean join(long gameID, Session session, String username) {
+        return join(gameID, session, username, false);
+    }
+
+    /**
+     * Adds the session to the game, as the given user
+     *
+     * @param moveDeltas whether the session wants moves as MOVE_APPLIED rather than LOAD_GAME
+     * @return false if the session is no longer live and was not added
+     */
+    public boolean join(long gameID, Session session, String username, boolean moveDeltas) {
+        boolean[] joined = new boolean[1];
+        connections.compute(session, (s, existing) -> {
+            if (!live.test(s)) {
+                return existing;
+            }
+            joined[0] = true;
+            Connection connection = existing == null ? new Connection(username, moveDeltas) : existing;
+            connection.gameIDs.add(gameID);
+            games.compute(gameID, (id, sessions) -> {
+                Set<Session> inGame = sessions == null ? ConcurrentHashMap.newKeySet() : sessions;
+                inGame.add(session);
+                return inGame;
+            });
+            return connection;
+        });
+        return joined[0];
+    }
+
+    /**
+     * Removes the session from one game, keeping it in any others. A session
+     * that leaves its last game is forgotten, as if it had closed.
+     */
+    public void leave(long gameID, Session session) {
+        connections.computeIfPresent(session, (s, connection) -> {
+            connection.gameIDs.remove(gameID);
+            removeFromGame(gameID, session);
+            return connection.gameIDs.isEmpty() ? null : connection;
+        });
+    }
+
+    /**
+     * Removes the session from every game it is in, for when it closes
+     */
+    public void remove(Session session) {
+        connections.computeIfPresent(session, (s, connection) -> {
+            for (long gameID : connection.gameIDs) {
+                removeFromGame(gameID, session);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * @return a live view of the sessions in the game, empty if there are none
+     */
+    public Set<Session> sessionsIn(long gameID) {
+        Set<Session> sessions = games.get(gameID);
+        return sessions == null ? Set.of() : Collections.unmodifiableSet(sessions);
+    }
+
+    /**
+     * @return the user the session connected as, or null if it is not connected
+     */
+    public String usernameOf(Session session) {
+        Connection connection = connections.get(session);
+        return connection == null ? null : connection.username;
+    }
+
+    /**
+     * @return true if the session asked for moves as MOVE_APPLIED
+     */
+    public boolean wantsMoveDeltas(Session session) {
+        Connection connection = connections.get(session);
+        return connection != null && connection.moveDeltas;
+    }
+
+    /**
+     * @return how many sessions are connected to any game
+     */
+    public int connectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * @return how many sessions are connected to the game
+     */
+    public int connectionCount(long gameID) {
+        Set<Session> sessions = games.get(gameID);
+        return sessions == null ? 0 : sessions.size();
+    }
+
+    /**
+     * @return how many games have at least one session connected
+     */
+    public int gameCount() {
+        return games.size();
+    }
+
+    private void removeFromGame(long gameID, Session session) {
+        games.computeIfPresent(gameID, (id, sessions) -> {
+            sessions.remove(session);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+
+    private static final class Connection {
+        private final String username;
+        private final boolean moveDeltas;
+        private final Set<Long> gameIDs = ConcurrentHashMap.newKeySet();
+
+        private Connection(String username, boolean moveDeltas) {
+            this.username = username;
+            this.moveDeltas = moveDeltas;
+        }
+    }
+}
@@ -4,51 +4,103 @@ import org.eclipse.jetty.websocket.api.annotations.*;
 
 import com.google.gson.Gson;
 
+import chess.ChessGame;
+import chess.ChessGame.GameStatus;
 import chess.ChessGame.TeamColor;
 import dataaccess.AuthDAO;
 import model.GameData;
+import server.GameMailboxes;
 import service.GameService;
+import websocket.commands.ConnectCommand;
 import websocket.commands.MoveCommand;
 import websocket.commands.UserGameCommand;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveAppliedMessage;
 import websocket.messages.NotificationMessage;
 import websocket.messages.ServerMessage;
 
 import static websocket.messages.ServerMessage.ServerMessageType.ERROR;
 import static websocket.messages.ServerMessage.ServerMessageType.LOAD_GAME;
+import static websocket.messages.ServerMessage.ServerMessageType.MOVE_APPLIED;
 import static websocket.messages.ServerMessage.ServerMessageType.NOTIFICATION;
 
-import java.io.IOException;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jetty.websocket.api.*;
 
 @WebSocket
 public class WebsocketHandler {
+    private static final Gson GSON = new Gson();
+
     private final GameService gameService;
     private final AuthDAO authDAO;
-    private HashMap<Integer, HashSet<Session>> allClients;
+    private final GameMailboxes mailboxes;
+    private final Map<Session, Outbox> outboxes = new ConcurrentHashMap<>();
+
+    /**
+     * A session can only join games while it has an outbox, which onClose
+     * takes away before removing it from here
+     */
+    private final SessionRegistry sessions = new SessionRegistry(s -> s.isOpen() && outboxes.containsKey(s));
+    private final int maxQueued;
+    private final Outbox.OverflowPolicy overflowPolicy;
 
-    public WebsocketHandler(GameService gameService, AuthDAO authDAO) {
+    /**
+     * @param maxQueued      the most messages a session can have waiting to be sent
+     * @param overflowPolicy what to do when a session has more than that
+     */
+    public WebsocketHandler(GameService gameService, AuthDAO authDAO, GameMailboxes mailboxes, int maxQueued,
+            Outbox.OverflowPolicy overflowPolicy) {
         this.gameService = gameService;
         this.authDAO = authDAO;
-        allClients = new HashMap<>();
+        this.mailboxes = mailboxes;
+        this.maxQueued = maxQueued;
+        this.overflowPolicy = overflowPolicy;
     }
 
+    /**
+     * @return the sessions connected to each game, and how many there are
+     */
+    public SessionRegistry getSessions() {
+        return sessions;
+    }
+
+    /**
+     * @return how far behind each open session's outbound messages are
+     */
+    public Map<Session, OutboxStats> getOutboxStats() {
+        Map<Session, OutboxStats> stats = new HashMap<>();
+        outboxes.forEach((session, outbox) -> stats.put(session, outbox.getStats()));
+        return stats;
+    }
+
+    /**
+     * Queues the command behind any others for its game, so each game's
+     * commands are handled one at a time
+     */
     @OnWebSocketMessage
     public void onMessage(Session session, String message) {
-        UserGameCommand command = new Gson().fromJson(message, UserGameCommand.class);
+        UserGameCommand command = GSON.fromJson(message, UserGameCommand.class);
+        if (command.getGameID() == null) {
+            handle(session, message, command);
+            return;
+        }
+        mailboxes.execute(command.getGameID(), () -> handle(session, message, command));
+    }
 
+    private void handle(Session session, String message, UserGameCommand command) {
         try {
             switch (command.getCommandType()) {
                 case CONNECT:
-                    handleConnect(session, command);
+                    ConnectCommand connect = GSON.fromJson(message, ConnectCommand.class);
+                    handleConnect(session, connect);
                     break;
 
                 case MAKE_MOVE:
-                    MoveCommand move = new Gson().fromJson(message, MoveCommand.class);
+                    MoveCommand move = GSON.fromJson(message, MoveCommand.class);
                     handleMove(move, session);
                     break;
 
@@ -60,42 +112,111 @@ public class WebsocketHandler {
                     handleResign(command, session);
                     break;
 
+                case RELOAD:
+                    handleReload(command, session);
+                    break;
+
                 default:
                     break;
             }
         } catch (Exception e) {
             // Send an error message over the WS
-            try {
-                session.getRemote().sendString(new Gson().toJson(new ErrorMessage(ERROR, e.getMessage())));
-            } catch (IOException ee) {
-                System.out.println(ee.getMessage());
-            }
+            send(session, new ErrorMessage(ERROR, e.getMessage()));
         }
     }
 
+    /**
+     * Gives the session its outbox. It is only ever made here, so nothing
+     * can make a new one for a session after it has closed.
+     */
+    @OnWebSocketConnect
+    public void onConnect(Session session) {
+        outboxes.put(session, new Outbox(session, maxQueued, overflowPolicy));
+    }
+
     @OnWebSocketClose
     public void onClose(Session session, int statusCode, String reason) {
-        allClients.values().forEach(clients -> clients.remove(session));
+        // The outbox goes first, so a CONNECT still queued for the game can't
+        // join the session after it has been removed
+        Outbox outbox = outboxes.remove(session);
+        sessions.remove(session);
+        if (outbox != null) {
+            outbox.close();
+        }
+    }
+
+    /**
+     * Queues the message for every session in the game but ignore. The
+     * message is turned into JSON once, however many sessions it goes to. A
+     * LOAD_GAME replaces older ones for the same game still waiting to go to
+     * a session that has fallen behind.
+     */
+    private void broadcast(long gameID, ServerMessage message, Session ignore) {
+        broadcast(gameID, message, null, ignore);
     }
 
-    private void broadcast(HashSet<Session> clients, ServerMessage message, Session ignore) throws IOException{
-        for (Session s : clients) {
+    /**
+     * Like broadcast, but sessions that asked for move deltas get delta
+     * instead of message
+     */
+    private void broadcast(long gameID, ServerMessage message, MoveAppliedMessage delta, Session ignore) {
+        Object replaces = message.getServerMessageType() == LOAD_GAME ? gameID : null;
+        String json = null;
+        String deltaJson = null;
+        for (Session s : sessions.sessionsIn(gameID)) {
             if (ignore != null && s.equals(ignore)) {
                 continue;
             }
-            s.getRemote().sendString(new Gson().toJson(message));
+            if (delta != null && sessions.wantsMoveDeltas(s)) {
+                if (deltaJson == null) {
+                    deltaJson = GSON.toJson(delta);
+                }
+                send(s, deltaJson, null);
+                continue;
+            }
+            if (json == null) {
+                json = GSON.toJson(message);
+            }
+            send(s, json, replaces);
+        }
+    }
+
+    private void send(Session session, ServerMessage message) {
+        send(session, GSON.toJson(message), null);
+    }
+
+    /**
+     * Queues the JSON on the session's outbox, skipping sessions that have
+     * closed, or are closing, and so have no outbox
+     */
+    private void send(Session session, String json, Object replaces) {
+        Outbox outbox = outboxes.get(session);
+        if (outbox != null && session.isOpen()) {
+            outbox.send(json, replaces);
+        }
+    }
+
+    /**
+     * Closes the session once the messages already queued for it are sent
+     */
+    private void closeWhenSent(Session session) {
+        Outbox outbox = outboxes.get(session);
+        if (outbox != null) {
+            outbox.closeWhenSent();
         }
     }
 
-    private void handleConnect(Session session, UserGameCommand command) throws Exception {
+    private void handleConnect(Session session, ConnectCommand command) throws Exception {
         String username = authDAO.getAuth(command.getAuthToken()).username();
 
-        HashSet<Session> clients = allClients.computeIfAbsent(command.getGameID(), k -> new HashSet<>());
-        clients.add(session);
+        if (!sessions.join(command.getGameID(), session, username, command.wantsMoveDeltas())) {
+            // Closed while the CONNECT waited its turn, nobody to tell
+            return;
+        }
         GameData game = gameService.getGame(command.getGameID());
 
         LoadGameMessage message = new LoadGameMessage(LOAD_GAME, game.game());
-        session.getRemote().sendString(new Gson().toJson(message));
+        send(session, message);
 
         String black = game.blackUsername();
         String white = game.whiteUsername();
@@ -107,7 +228,7 @@ public class WebsocketHandler {
         } else {
             m = new NotificationMessage(NOTIFICATION, username + " joined as an observer");
         }
-        broadcast(clients, m, session);
+        broadcast(command.getGameID(), m, session);
     }
 
     private void handleLeave(UserGameCommand command, Session session) throws Exception {
@@ -126,9 +247,10 @@ public class WebsocketHandler {
         } else {
             m = new NotificationMessage(NOTIFICATION, username + " stopped observing");
         }
-        broadcast(allClients.get(game.gameID()), m, session);
+        broadcast(game.gameID(), m, session);
+        sessions.leave(game.gameID(), session);
         gameService.setGame(game);
-        session.close();
+        closeWhenSent(session);
     }
 
     private void handleMove(MoveCommand move, Session session) throws Exception {
@@ -137,40 +259,53 @@ public class WebsocketHandler {
 
         if (!username.equals(gameData.game().getTeamTurn() == TeamColor.WHITE ? gameData.whiteUsername() : gameData.blackUsername())) {
             ServerMessage message = new ErrorMessage(ERROR, "you are not allowed to move that piece");
-            session.getRemote().sendString(new Gson().toJson(message));
+            send(session, message);
             return;
         }
 
         ServerMessage message = gameService.makeMove(move.getGameID(), move.getMove());
         if (message.getClass().equals(ErrorMessage.class)) {
-            session.getRemote().sendString(new Gson().toJson(message));
+            send(session, message);
             return;
         }
-        broadcast(allClients.get(move.getGameID()), message, null);
+        // The game sent with LOAD_GAME already has the move applied, so describe that one
+        ChessGame game = ((LoadGameMessage) message).game;
+        GameStatus status = game.evaluateStatus();
+        MoveAppliedMessage delta = new MoveAppliedMessage(MOVE_APPLIED, move.getEncodedMove(), status,
+                game.getPly(), game.getZobristKey());
+        broadcast(move.getGameID(), message, delta, null);
 
         NotificationMessage nm = new NotificationMessage(NOTIFICATION, username + " moved " + move.getMove().toString());
-        broadcast(allClients.get(move.getGameID()), nm, session);
-
-        // Just use the data we already have to do it here rather than getting the game again
-        gameData.game().makeMove(move.getMove());
-        boolean check = gameData.game().isInCheck(gameData.game().getTeamTurn());
-        boolean checkmate = gameData.game().isInCheckmate(gameData.game().getTeamTurn());
-        boolean stalemate = gameData.game().isInStalemate(gameData.game().getTeamTurn());
-        if (check || checkmate || stalemate) {
-            username = gameData.game().getTeamTurn() == TeamColor.WHITE ? gameData.whiteUsername() : gameData.blackUsername();
+        broadcast(move.getGameID(), nm, session);
+
+        if (status != GameStatus.IN_PROGRESS) {
+            username = game.getTeamTurn() == TeamColor.WHITE ? gameData.whiteUsername() : gameData.blackUsername();
             String mate;
-            if (stalemate) {
+            if (status == GameStatus.STALEMATE) {
                 mate = " is in stalemate!";
-            } else if (checkmate) {
+            } else if (status == GameStatus.CHECKMATE) {
                 mate = " is in checkmate!";
             } else {
                 mate = " is in check!";
             }
             nm = new NotificationMessage(NOTIFICATION, username + mate);
-            broadcast(allClients.get(move.getGameID()), nm, null);
+            broadcast(move.getGameID(), nm, null);
         }
     }
 
+    /**
+     * Sends the whole game again, to a client whose copy no longer matches
+     * the moves sent to it
+     */
+    private void handleReload(UserGameCommand command, Session session) throws Exception {
+        if (authDAO.getAuth(command.getAuthToken()) == null) {
+            send(session, new ErrorMessage(ERROR, "unauthorized"));
+            return;
+        }
+        GameData game = gameService.getGame(command.getGameID());
+        send(session, new LoadGameMessage(LOAD_GAME, game.game()));
+    }
+
     private void handleResign(UserGameCommand command, Session session) throws Exception {
         GameData game = gameService.getGame(command.getGameID());
         String username = authDAO.getAuth(command.getAuthToken()).username();
@@ -186,12 +321,12 @@ public class WebsocketHandler {
             game = new GameData(game.gameID(), null, null, game.gameName(), game.game());
             m = new NotificationMessage(NOTIFICATION, username + " resigned. Black wins!");
         } else {
-            session.getRemote().sendString(new Gson().toJson(new ErrorMessage(ERROR, "Only players can resign.")));
+            send(session, new ErrorMessage(ERROR, "Only players can resign."));
             return;
         }
 
-        broadcast(allClients.get(game.gameID()), m, null);
+        broadcast(game.gameID(), m, null);
         gameService.setGame(game);
-        session.close();
+        closeWhenSent(session);
     }
 }
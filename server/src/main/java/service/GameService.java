@@ -3,6 +3,7 @@ package service;
 import dataaccess.AuthDAO;
 import dataaccess.DataAccessException;
 import dataaccess.GameDAO;
+import dataaccess.GameQuery;
 import model.AuthData;
 import model.GameData;
 import model.requests.CreateGameRequest;
@@ -18,12 +19,23 @@ import websocket.messages.ServerMessage;
 import static websocket.messages.ServerMessage.ServerMessageType.ERROR;
 import static websocket.messages.ServerMessage.ServerMessageType.LOAD_GAME;
 
-import java.util.Collection;
+import java.util.List;
 
 import chess.ChessMove;
 import chess.InvalidMoveException;
+import chess.Move;
 
 public class GameService {
+    /**
+     * How many games one page of a listing holds when no limit is asked for
+     */
+    static final int DEFAULT_PAGE_SIZE = 50;
+
+    /**
+     * The most games one page of a listing holds, whatever limit is asked for
+     */
+    static final int MAX_PAGE_SIZE = 100;
+
     private final AuthDAO authDAO;
     private final GameDAO gameDAO;
 
@@ -41,7 +53,7 @@ public class GameService {
                 return new CreateGameResult(null, "Error: bad request");
             }
 
-            int gameID;
+            long gameID;
             gameID = gameDAO.createGame(createGameRequest.gameName());
 
             return new CreateGameResult(gameID, null);
@@ -50,7 +62,7 @@ public class GameService {
         }
     }
 
-    public ServerMessage makeMove(int gameID, ChessMove move) throws DataAccessException {
+    public ServerMessage makeMove(long gameID, ChessMove move) throws DataAccessException {
         GameData gameData = gameDAO.getGame(gameID);
         if (gameData == null) {
             return new ErrorMessage(ERROR, "no game");
@@ -62,7 +74,7 @@ public class GameService {
             return new ErrorMessage(ERROR, "invalid move " + move.toString());
         }
 
-        gameDAO.updateGame(gameData);
+        gameDAO.appendMove(gameData, Move.fromChessMove(move));
         return new LoadGameMessage(LOAD_GAME, gameData.game());
     }
 
@@ -97,15 +109,29 @@ public class GameService {
             return new ListGamesResult(null, "Error: unauthorized");
         }
 
+        Integer limit = listGamesRequest.limit();
+        if (limit != null && limit < 1) {
+            return new ListGamesResult(null, "Error: bad request");
+        }
+        // Every listing is one bounded page, follow nextCursor for the rest
+        limit = limit == null ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+
         try {
-            Collection<GameData> gamesList = gameDAO.listGames();
-            return new ListGamesResult(gamesList, null);
+            // Ask for one more than the page holds to know whether there is another page
+            GameQuery query = new GameQuery(listGamesRequest.cursor(), limit + 1,
+                    Boolean.TRUE.equals(listGamesRequest.openSeats()), listGamesRequest.player());
+            List<GameData> gamesList = gameDAO.listGames(query);
+            if (gamesList.size() <= limit) {
+                return new ListGamesResult(gamesList, null);
+            }
+            gamesList = gamesList.subList(0, limit);
+            return new ListGamesResult(gamesList, null, gamesList.get(limit - 1).gameID());
         } catch (DataAccessException e) {
             return new ListGamesResult(null, "Error: " + e.getMessage());
         }
     }
 
-    public GameData getGame(int gameID) throws DataAccessException {
+    public GameData getGame(long gameID) throws DataAccessException {
         return gameDAO.getGame(gameID);
     }
 
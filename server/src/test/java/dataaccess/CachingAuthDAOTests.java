@@ -0,0 +1,142 @@
+package dataaccess;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dataaccess.memory.MemoryAuthDAO;
+import model.AuthData;
+import model.UserData;
+
+public class CachingAuthDAOTests {
+    private LookupAuthDAO backing;
+    private CachingAuthDAO authDAO;
+
+    @BeforeEach
+    public void setup() {
+        backing = new LookupAuthDAO();
+        authDAO = new CachingAuthDAO(backing, 2, 60_000L, 60_000L);
+    }
+
+    @Test
+    void testCachedLookup() {
+        assertDoesNotThrow(() -> {
+            AuthData authData = backing.createAuth(new UserData("Test", "password", "test@example.com"));
+            Assertions.assertEquals(authData, authDAO.getAuth(authData.authToken()));
+            Assertions.assertEquals(authData, authDAO.getAuth(authData.authToken()));
+            Assertions.assertEquals(1, authDAO.getStats().hits());
+            Assertions.assertEquals(1, authDAO.getStats().misses());
+        });
+    }
+
+    @Test
+    void testDeleteInvalidates() {
+        assertDoesNotThrow(() -> {
+            AuthData authData = authDAO.createAuth(new UserData("Test", "password", "test@example.com"));
+            Assertions.assertEquals(authData, authDAO.getAuth(authData.authToken()));
+            Assertions.assertTrue(authDAO.deleteAuth(authData.authToken()));
+            Assertions.assertNull(authDAO.getAuth(authData.authToken()));
+        });
+    }
+
+    @Test
+    void testNegativeCaching() {
+        assertDoesNotThrow(() -> {
+            Assertions.assertNull(authDAO.getAuth("bad token"));
+            Assertions.assertNull(authDAO.getAuth("bad token"));
+            Assertions.assertEquals(1, authDAO.getStats().hits());
+            Assertions.assertEquals(1, authDAO.getStats().misses());
+        });
+    }
+
+    @Test
+    void testBounded() {
+        assertDoesNotThrow(() -> {
+            for (int i = 0; i < 5; i++) {
+                authDAO.createAuth(new UserData("Test" + i, "password", "test" + i + "@example.com"));
+            }
+            Assertions.assertEquals(2, authDAO.getStats().size());
+            Assertions.assertEquals(3, authDAO.getStats().evictions());
+        });
+    }
+
+    @Test
+    void testUnauthorizedCached() {
+        backing.failure = new UnauthorizedException();
+        Assertions.assertThrows(UnauthorizedException.class, () -> authDAO.getAuth("bad token"));
+        Assertions.assertThrows(UnauthorizedException.class, () -> authDAO.getAuth("bad token"));
+        Assertions.assertEquals(1, backing.lookups);
+    }
+
+    @Test
+    void testFailedLookupNotCached() {
+        backing.failure = new DataAccessException("unauthorized");
+        Assertions.assertThrows(DataAccessException.class, () -> authDAO.getAuth("token"));
+        Assertions.assertThrows(DataAccessException.class, () -> authDAO.getAuth("token"));
+        Assertions.assertEquals(2, backing.lookups);
+    }
+
+    @Test
+    void testDeleteDuringLookup() {
+        assertDoesNotThrow(() -> {
+            AuthData authData = backing.createAuth(new UserData("Test", "password", "test@example.com"));
+            backing.duringLookup = () -> authDAO.deleteAuth(authData.authToken());
+            Assertions.assertEquals(authData, authDAO.getAuth(authData.authToken()));
+            backing.duringLookup = null;
+            Assertions.assertNull(authDAO.getAuth(authData.authToken()));
+            Assertions.assertEquals(2, backing.lookups);
+        });
+    }
+
+    @Test
+    void testDeleteOtherTokenDuringLookup() {
+        assertDoesNotThrow(() -> {
+            AuthData authData = backing.createAuth(new UserData("Test", "password", "test@example.com"));
+            backing.duringLookup = () -> authDAO.deleteAuth("other token");
+            authDAO.getAuth(authData.authToken());
+            backing.duringLookup = null;
+            Assertions.assertEquals(authData, authDAO.getAuth(authData.authToken()));
+            Assertions.assertEquals(1, backing.lookups);
+        });
+    }
+
+    /**
+     * Counts lookups, and can fail them or run something while one is loading
+     */
+    private static final class LookupAuthDAO implements AuthDAO {
+        private final MemoryAuthDAO memory = new MemoryAuthDAO();
+        private int lookups;
+        private DataAccessException failure;
+        private Runnable duringLookup;
+
+        @Override
+        public AuthData createAuth(UserData userData) throws DataAccessException {
+            return memory.createAuth(userData);
+        }
+
+        @Override
+        public AuthData getAuth(String authToken) throws DataAccessException {
+            lookups++;
+            if (failure != null) {
+                throw failure;
+            }
+            AuthData authData = memory.getAuth(authToken);
+            if (duringLookup != null) {
+                duringLookup.run();
+            }
+            return authData;
+        }
+
+        @Override
+        public Boolean deleteAuth(String authToken) {
+            return memory.deleteAuth(authToken);
+        }
+
+        @Override
+        public void clear() throws DataAccessException {
+            memory.clear();
+        }
+    }
+}
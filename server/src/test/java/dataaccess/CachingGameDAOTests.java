@@ -0,0 +1,114 @@
+package dataaccess;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame;
+import dataaccess.memory.MemoryGameDAO;
+import model.GameData;
+
+public class CachingGameDAOTests {
+    private MemoryGameDAO backing;
+    private CachingGameDAO gameDAO;
+
+    @BeforeEach
+    public void setup() {
+        backing = new MemoryGameDAO();
+        gameDAO = new CachingGameDAO(backing, 2, 60_000L);
+    }
+
+    @Test
+    void testHitsAndMisses() {
+        assertDoesNotThrow(() -> {
+            long gameID = gameDAO.createGame("Test");
+            GameData first = gameDAO.getGame(gameID);
+            GameData second = gameDAO.getGame(gameID);
+
+            Assertions.assertSame(first, second);
+            Assertions.assertEquals(1, gameDAO.getStats().hits());
+            Assertions.assertEquals(1, gameDAO.getStats().misses());
+            Assertions.assertEquals(0.5, gameDAO.getStats().hitRate());
+        });
+    }
+
+    @Test
+    void testSizeEviction() {
+        assertDoesNotThrow(() -> {
+            long[] gameIDs = new long[3];
+            for (int i = 0; i < gameIDs.length; i++) {
+                gameIDs[i] = backing.createGame("Test" + i);
+                gameDAO.getGame(gameIDs[i]);
+            }
+
+            Assertions.assertEquals(2, gameDAO.getStats().size());
+            Assertions.assertEquals(1, gameDAO.getStats().evictions());
+            gameDAO.getGame(gameIDs[0]);
+            Assertions.assertEquals(4, gameDAO.getStats().misses());
+        });
+    }
+
+    @Test
+    void testFailedWriteInvalidates() {
+        assertDoesNotThrow(() -> {
+            long gameID = gameDAO.createGame("Test");
+            gameDAO.getGame(gameID);
+            backing.clear();
+
+            Assertions.assertThrows(DataAccessException.class,
+                    () -> gameDAO.updateGame(new GameData(gameID, "white", null, "Test", new ChessGame())));
+            Assertions.assertNull(gameDAO.getGame(gameID));
+            Assertions.assertEquals(2, gameDAO.getStats().misses());
+        });
+    }
+
+    @Test
+    void testConcurrentMissesLoadOnce() {
+        assertDoesNotThrow(() -> {
+            long gameID = backing.createGame("Test");
+            CountDownLatch loadStarted = new CountDownLatch(1);
+            CountDownLatch finishLoad = new CountDownLatch(1);
+            AtomicInteger loads = new AtomicInteger();
+            CachingGameDAO slowDAO = new CachingGameDAO(new MemoryGameDAO() {
+                @Override
+                public GameData getGame(long id) {
+                    loads.incrementAndGet();
+                    loadStarted.countDown();
+                    assertDoesNotThrow(() -> finishLoad.await());
+                    return backing.getGame(id);
+                }
+            }, 2, 60_000L);
+
+            List<Thread> readers = new ArrayList<>();
+            List<GameData> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                Thread reader = new Thread(() -> assertDoesNotThrow(() -> {
+                    GameData gameData = slowDAO.getGame(gameID);
+                    synchronized (results) {
+                        results.add(gameData);
+                    }
+                }));
+                readers.add(reader);
+                reader.start();
+                if (i == 0) {
+                    loadStarted.await();
+                }
+            }
+            finishLoad.countDown();
+            for (Thread reader : readers) {
+                reader.join();
+            }
+
+            Assertions.assertEquals(1, loads.get());
+            Assertions.assertEquals(8, results.size());
+            results.forEach(gameData -> Assertions.assertSame(results.getFirst(), gameData));
+        });
+    }
+}
@@ -11,6 +11,9 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Move;
 import dataaccess.sql.SQLGameDAO;
 import model.GameData;
 
@@ -35,7 +38,7 @@ public class GameDAOTests {
 
     @Test
     void testCreateGameGood() {
-        Integer[] gameID = new Integer[1];
+        Long[] gameID = new Long[1];
         assertDoesNotThrow(() -> {
             gameID[0] = gameDAO.createGame("Test");
         });
@@ -44,16 +47,26 @@ public class GameDAOTests {
 
     @Test
     void testCreateGameBad() {
-        Integer[] gameID = new Integer[1];
+        Long[] gameID = new Long[1];
         assertThrows(DataAccessException.class, () -> {
             gameID[0] = gameDAO.createGame(null);
         });
         Assertions.assertNull(gameID[0]);
     }
 
+    @Test
+    void testCreateGameSequential() {
+        assertDoesNotThrow(() -> {
+            long first = gameDAO.createGame("Test");
+            for (int i = 1; i < 50; i++) {
+                Assertions.assertEquals(first + i, gameDAO.createGame("Test " + i));
+            }
+        });
+    }
+
     @Test
     GameData testGetGameGood() {
-        Integer[] gameID = new Integer[1];
+        Long[] gameID = new Long[1];
         assertDoesNotThrow(() -> {
             gameID[0] = gameDAO.createGame("Test");
         });
@@ -77,7 +90,7 @@ public class GameDAOTests {
 
     @Test
     void testListGames() {
-        Integer[] gameID = new Integer[1];
+        Long[] gameID = new Long[1];
         assertDoesNotThrow(() -> {
             gameID[0] = gameDAO.createGame("Test");
         });
@@ -120,4 +133,41 @@ public class GameDAOTests {
         });
         Assertions.assertNull(gameData[0]);
     }
+
+    @Test
+    void testAppendMove() {
+        GameData gameData = testGetGameGood();
+        // Knights out and back, enough plies to pass a snapshot
+        ChessMove[] moves = {
+                new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null),
+                new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null),
+                new ChessMove(new ChessPosition(3, 6), new ChessPosition(1, 7), null),
+                new ChessMove(new ChessPosition(6, 6), new ChessPosition(8, 7), null)
+        };
+        assertDoesNotThrow(() -> {
+            for (int i = 0; i < 25; i++) {
+                ChessMove move = moves[i % moves.length];
+                gameData.game().makeMove(move);
+                gameDAO.appendMove(gameData, Move.fromChessMove(move));
+            }
+            GameData loaded = gameDAO.getGame(gameData.gameID());
+            Assertions.assertEquals(gameData.game(), loaded.game());
+            Assertions.assertEquals(25, loaded.game().getPly());
+            Assertions.assertEquals(25, gameDAO.listGames().iterator().next().game().getPly());
+        });
+    }
+
+    @Test
+    void testAppendMoveBad() {
+        GameData gameData = testGetGameGood();
+        assertDoesNotThrow(() -> {
+            gameData.game().makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+            gameDAO.appendMove(gameData, Move.fromChessMove(
+                    new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null)));
+        });
+        assertThrows(DataAccessException.class, () -> {
+            gameDAO.appendMove(gameData, Move.fromChessMove(
+                    new ChessMove(new ChessPosition(2, 4), new ChessPosition(4, 4), null)));
+        });
+    }
 }
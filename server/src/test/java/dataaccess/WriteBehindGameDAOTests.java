@@ -0,0 +1,183 @@
+package dataaccess;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Move;
+import dataaccess.memory.MemoryGameDAO;
+import model.GameData;
+
+public class WriteBehindGameDAOTests {
+    private static final long NEVER = 3_600_000L;
+
+    private StrictGameDAO backing;
+    private Path journal;
+    private long gameID;
+
+    @BeforeEach
+    public void setup() {
+        backing = new StrictGameDAO();
+        assertDoesNotThrow(() -> {
+            journal = Files.createTempFile("game-journal", ".log");
+            gameID = backing.createGame("Test");
+        });
+    }
+
+    @AfterEach
+    public void cleanup() {
+        assertDoesNotThrow(() -> Files.deleteIfExists(journal));
+    }
+
+    @Test
+    void testWritesWaitForFlush() {
+        assertDoesNotThrow(() -> {
+            WriteBehindGameDAO gameDAO = new WriteBehindGameDAO(backing, journal, NEVER, NEVER);
+            GameData gameData = new GameData(gameID, "white", null, "Test", new ChessGame());
+            gameDAO.updateGame(gameData);
+
+            Assertions.assertEquals("white", gameDAO.getGame(gameID).whiteUsername());
+            Assertions.assertNull(backing.getGame(gameID).whiteUsername());
+
+            gameDAO.flush();
+            Assertions.assertEquals("white", backing.getGame(gameID).whiteUsername());
+            Assertions.assertEquals(0, Files.size(journal));
+            gameDAO.close();
+        });
+    }
+
+    @Test
+    void testJournalReplay() {
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        assertDoesNotThrow(() -> {
+            WriteBehindGameDAO gameDAO = new WriteBehindGameDAO(backing, journal, NEVER, NEVER);
+            GameData gameData = new GameData(gameID, "white", "black", "Test", new ChessGame());
+            gameDAO.updateGame(gameData);
+            gameData.game().makeMove(move);
+            gameDAO.appendMove(gameData, Move.fromChessMove(move));
+        });
+
+        // A second DAO on the same journal stands in for the server restarting before a flush
+        assertDoesNotThrow(() -> {
+            byte[] leftOver = Files.readAllBytes(journal);
+            new WriteBehindGameDAO(backing, journal, NEVER, NEVER).close();
+            GameData gameData = backing.getGame(gameID);
+            Assertions.assertEquals("black", gameData.blackUsername());
+            Assertions.assertEquals(1, gameData.game().getPly());
+            Assertions.assertEquals(ChessGame.TeamColor.BLACK, gameData.game().getTeamTurn());
+
+            // Replaying the same journal again changes nothing
+            Files.write(journal, leftOver);
+            new WriteBehindGameDAO(backing, journal, NEVER, NEVER).close();
+            Assertions.assertEquals(1, backing.getGame(gameID).game().getPly());
+        });
+    }
+
+    @Test
+    void testJournalKeepsOnlyUnflushedWrites() {
+        assertDoesNotThrow(() -> {
+            long otherID = backing.createGame("Other");
+            WriteBehindGameDAO gameDAO = new WriteBehindGameDAO(backing, journal, NEVER, NEVER);
+            gameDAO.updateGame(new GameData(gameID, "white", null, "Test", new ChessGame()));
+            gameDAO.updateGame(new GameData(otherID, "white", null, "Other", new ChessGame()));
+
+            backing.rejectedGame = otherID;
+            Assertions.assertThrows(DataAccessException.class, gameDAO::flush);
+            Assertions.assertEquals("white", backing.getGame(gameID).whiteUsername());
+            List<String> lines = Files.readAllLines(journal);
+            Assertions.assertEquals(1, lines.size());
+            Assertions.assertTrue(lines.getFirst().contains("\"Other\""));
+
+            backing.rejectedGame = -1;
+            gameDAO.flush();
+            Assertions.assertEquals("white", backing.getGame(otherID).whiteUsername());
+            Assertions.assertEquals(0, Files.size(journal));
+            gameDAO.close();
+        });
+    }
+
+    @Test
+    void testPoisonWriteDropped() {
+        assertDoesNotThrow(() -> {
+            WriteBehindGameDAO gameDAO = new WriteBehindGameDAO(backing, journal, NEVER, NEVER);
+            gameDAO.updateGame(new GameData(gameID, "white", null, "Test", new ChessGame()));
+
+            backing.rejectedGame = gameID;
+            for (int i = 1; i < WriteBehindGameDAO.MAX_ATTEMPTS; i++) {
+                Assertions.assertThrows(DataAccessException.class, gameDAO::flush);
+                Assertions.assertTrue(Files.size(journal) > 0);
+            }
+            gameDAO.flush();
+            Assertions.assertEquals(0, Files.size(journal));
+            Assertions.assertNull(backing.getGame(gameID).whiteUsername());
+            gameDAO.close();
+        });
+    }
+
+    @Test
+    void testUpdateMissingGame() {
+        assertDoesNotThrow(() -> {
+            WriteBehindGameDAO gameDAO = new WriteBehindGameDAO(backing, journal, NEVER, NEVER);
+            Assertions.assertThrows(DataAccessException.class,
+                    () -> gameDAO.updateGame(new GameData(gameID + 1, null, null, "Test", new ChessGame())));
+            gameDAO.close();
+        });
+    }
+
+    /**
+     * Rejects a move at a ply it already has, as the database does, and every
+     * write for rejectedGame
+     */
+    private static final class StrictGameDAO extends MemoryGameDAO {
+        private final Map<Long, Integer> plies = new HashMap<>();
+        private long rejectedGame = -1;
+
+        @Override
+        public void updateGame(GameData gameData) throws DataAccessException {
+            if (gameData.gameID() == rejectedGame) {
+                throw new DataAccessException("rejected");
+            }
+            super.updateGame(gameData);
+        }
+
+        @Override
+        public void appendMove(GameData gameData, int move) throws DataAccessException {
+            int ply = gameData.game().getPly();
+            if (ply <= plies.getOrDefault(gameData.gameID(), 0)) {
+                throw new DataAccessException("duplicate move for game " + gameData.gameID() + " at ply " + ply);
+            }
+            super.appendMove(gameData, move);
+            plies.put(gameData.gameID(), ply);
+        }
+
+        @Override
+        public List<GameWrite> writeAll(List<GameWrite> writes) {
+            List<GameWrite> failed = new ArrayList<>();
+            for (GameWrite write : writes) {
+                try {
+                    if (write.isMove()) {
+                        appendMove(write.gameData(), write.move());
+                    } else {
+                        updateGame(write.gameData());
+                    }
+                } catch (DataAccessException e) {
+                    failed.add(write);
+                }
+            }
+            return failed;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class GameMailboxesTests {
+    private GameMailboxes mailboxes;
+
+    @BeforeEach
+    public void setup() {
+        mailboxes = new GameMailboxes();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        mailboxes.close();
+    }
+
+    @Test
+    void testOneGameRunsInOrder() {
+        List<Integer> ran = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int n = i;
+            mailboxes.execute(1, () -> ran.add(n));
+        }
+        mailboxes.submit(1, () -> null).join();
+
+        for (int i = 0; i < 500; i++) {
+            Assertions.assertEquals(i, ran.get(i));
+        }
+    }
+
+    @Test
+    void testGamesSubmittedFromManyThreads() throws InterruptedException {
+        // Plain ints, only safe if each game's tasks never overlap
+        int[] counts = new int[4];
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    int game = i % counts.length;
+                    mailboxes.execute(game, () -> counts[game]++);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int game = 0; game < counts.length; game++) {
+            int g = game;
+            results.add(mailboxes.submit(g, () -> counts[g]));
+        }
+        for (CompletableFuture<Integer> result : results) {
+            Assertions.assertEquals(2000, result.join());
+        }
+    }
+
+    @Test
+    void testFailedTaskDoesNotStopGame() {
+        mailboxes.execute(1, () -> {
+            throw new IllegalStateException("expected");
+        });
+        Assertions.assertEquals("still running", mailboxes.submit(1, () -> "still running").join());
+    }
+
+    @Test
+    void testFailedSupplierCompletesFuture() {
+        CompletableFuture<String> result = mailboxes.submit(1, () -> {
+            throw new AssertionError("expected");
+        });
+        CompletionException e = Assertions.assertThrows(CompletionException.class, result::join);
+        Assertions.assertTrue(e.getCause() instanceof AssertionError);
+        Assertions.assertEquals("still running", mailboxes.submit(1, () -> "still running").join());
+    }
+
+    @Test
+    void testWorkAfterCloseRejected() {
+        mailboxes.close();
+        Assertions.assertThrows(RejectedExecutionException.class, () -> mailboxes.execute(1, () -> { }));
+        CompletionException e = Assertions.assertThrows(CompletionException.class,
+                () -> mailboxes.submit(1, () -> "never").join());
+        Assertions.assertTrue(e.getCause() instanceof RejectedExecutionException);
+        Assertions.assertEquals(0, mailboxes.activeGames());
+    }
+}
@@ -0,0 +1,114 @@
+package server.websocket;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class OutboxTests {
+    private FakeSession fake;
+
+    @BeforeEach
+    public void setup() {
+        fake = new FakeSession();
+    }
+
+    @Test
+    void testSendsOneAtATimeInOrder() {
+        Outbox outbox = new Outbox(fake.session, 10, Outbox.OverflowPolicy.DISCONNECT);
+        outbox.send("a", null);
+        outbox.send("b", null);
+        outbox.send("c", null);
+        Assertions.assertEquals(List.of("a"), fake.written);
+        Assertions.assertEquals(3, outbox.getStats().queued());
+
+        fake.finishWrites();
+        Assertions.assertEquals(List.of("a", "b", "c"), fake.written);
+        Assertions.assertEquals(3, outbox.getStats().sent());
+        Assertions.assertEquals(0, outbox.getStats().queued());
+    }
+
+    @Test
+    void testDropStaleReplacesQueuedMessages() {
+        Outbox outbox = new Outbox(fake.session, 2, Outbox.OverflowPolicy.DROP_STALE);
+        outbox.send("first", null);
+        outbox.send("game 1", 7);
+        outbox.send("note", null);
+        Assertions.assertTrue(outbox.send("game 2", 7));
+        Assertions.assertFalse(fake.closed);
+
+        fake.finishWrites();
+        Assertions.assertEquals(List.of("first", "note", "game 2"), fake.written);
+        Assertions.assertEquals(1, outbox.getStats().dropped());
+    }
+
+    @Test
+    void testDisconnectsWhenFull() {
+        Outbox outbox = new Outbox(fake.session, 2, Outbox.OverflowPolicy.DISCONNECT);
+        outbox.send("first", null);
+        outbox.send("game 1", 7);
+        outbox.send("note", null);
+        Assertions.assertFalse(outbox.send("game 2", 7));
+        Assertions.assertTrue(fake.closed);
+        Assertions.assertFalse(outbox.send("late", null));
+    }
+
+    @Test
+    void testCloseWhenSent() {
+        Outbox outbox = new Outbox(fake.session, 10, Outbox.OverflowPolicy.DISCONNECT);
+        outbox.send("a", null);
+        outbox.send("b", null);
+        outbox.closeWhenSent();
+        Assertions.assertFalse(fake.closed);
+
+        fake.finishWrites();
+        Assertions.assertEquals(List.of("a", "b"), fake.written);
+        Assertions.assertTrue(fake.closed);
+    }
+
+    /**
+     * A session whose sends only complete when finishWrites is called
+     */
+    private static class FakeSession {
+        private final List<String> written = new ArrayList<>();
+        private final List<WriteCallback> callbacks = new ArrayList<>();
+        private boolean closed;
+        private final Session session;
+
+        private FakeSession() {
+            RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+                    new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                        if (!method.getName().equals("sendString") || args.length != 2) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        written.add((String) args[0]);
+                        callbacks.add((WriteCallback) args[1]);
+                        return null;
+                    });
+            session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "getRemote" -> remote;
+                        case "isOpen" -> !closed;
+                        case "close" -> {
+                            closed = true;
+                            yield null;
+                        }
+                        case "equals" -> proxy == args[0];
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        private void finishWrites() {
+            while (!callbacks.isEmpty()) {
+                callbacks.remove(0).writeSuccess();
+            }
+        }
+    }
+}
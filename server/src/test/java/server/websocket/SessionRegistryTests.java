@@ -0,0 +1,132 @@
+package server.websocket;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SessionRegistryTests {
+    private final Set<Session> closed = ConcurrentHashMap.newKeySet();
+    private SessionRegistry registry;
+
+    @BeforeEach
+    public void setup() {
+        registry = new SessionRegistry();
+    }
+
+    @Test
+    void testJoinAndRemove() {
+        Session white = fakeSession();
+        Session black = fakeSession();
+        registry.join(1, white, "white");
+        registry.join(1, black, "black", true);
+        registry.join(2, white, "white");
+
+        Assertions.assertEquals(2, registry.connectionCount());
+        Assertions.assertEquals(2, registry.connectionCount(1));
+        Assertions.assertEquals(2, registry.gameCount());
+        Assertions.assertEquals("black", registry.usernameOf(black));
+        Assertions.assertTrue(registry.wantsMoveDeltas(black));
+        Assertions.assertFalse(registry.wantsMoveDeltas(white));
+
+        registry.remove(white);
+        Assertions.assertEquals(1, registry.connectionCount());
+        Assertions.assertEquals(1, registry.connectionCount(1));
+        Assertions.assertEquals(0, registry.connectionCount(2));
+        Assertions.assertEquals(1, registry.gameCount());
+        Assertions.assertNull(registry.usernameOf(white));
+    }
+
+    @Test
+    void testLeaveOneGame() {
+        Session session = fakeSession();
+        registry.join(1, session, "user");
+        registry.join(2, session, "user");
+
+        registry.leave(1, session);
+        Assertions.assertTrue(registry.sessionsIn(1).isEmpty());
+        Assertions.assertTrue(registry.sessionsIn(2).contains(session));
+        Assertions.assertEquals(1, registry.connectionCount());
+
+        registry.leave(2, session);
+        Assertions.assertTrue(registry.sessionsIn(2).isEmpty());
+        Assertions.assertEquals(0, registry.connectionCount());
+        Assertions.assertEquals(0, registry.gameCount());
+        Assertions.assertNull(registry.usernameOf(session));
+    }
+
+    @Test
+    void testConcurrentJoinAndRemove() throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    Session session = fakeSession();
+                    registry.join(i % 10, session, "user");
+                    registry.remove(session);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assertions.assertEquals(0, registry.connectionCount());
+        Assertions.assertEquals(0, registry.gameCount());
+    }
+
+    @Test
+    void testJoinRacingRemove() throws InterruptedException {
+        for (int i = 0; i < 2000; i++) {
+            Session session = fakeSession();
+            Thread joining = new Thread(() -> registry.join(1, session, "user"));
+            Thread closing = new Thread(() -> {
+                closed.add(session);
+                registry.remove(session);
+            });
+            joining.start();
+            closing.start();
+            joining.join();
+            closing.join();
+
+            // Whichever ran first, a closed session ends up in neither map
+            Assertions.assertNull(registry.usernameOf(session));
+            Assertions.assertFalse(registry.sessionsIn(1).contains(session));
+        }
+        Assertions.assertEquals(0, registry.gameCount());
+    }
+
+    @Test
+    void testJoinAfterRemove() {
+        Session session = fakeSession();
+        closed.add(session);
+        registry.remove(session);
+
+        Assertions.assertFalse(registry.join(1, session, "user"));
+        Assertions.assertNull(registry.usernameOf(session));
+        Assertions.assertEquals(0, registry.connectionCount());
+        Assertions.assertEquals(0, registry.gameCount());
+    }
+
+    /**
+     * A session that only supports equals, hashCode and isOpen, which is all
+     * the registry uses. It is open until added to closed.
+     */
+    private Session fakeSession() {
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "isOpen" -> !closed.contains(proxy);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -29,7 +29,7 @@ public class ClearServiceTest {
         });
 
         GameDAO gameDAO = new MemoryGameDAO();
-        final Integer[] gameID = new Integer[1];
+        final Long[] gameID = new Long[1];
         assertDoesNotThrow(() -> {
             gameID[0] = gameDAO.createGame("Best Game!");
         });
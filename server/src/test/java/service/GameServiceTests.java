@@ -14,6 +14,7 @@ import dataaccess.memory.MemoryAuthDAO;
 import dataaccess.memory.MemoryGameDAO;
 import dataaccess.AuthDAO;
 import dataaccess.GameDAO;
+import dataaccess.GameQuery;
 import model.GameData;
 import model.UserData;
 import model.requests.CreateGameRequest;
@@ -41,7 +42,7 @@ public class GameServiceTests {
 
     @Test
     void testCreateGameGood() {
-        int gameID = gameService.createGame(new CreateGameRequest(authToken, "Best Game!")).gameID();
+        long gameID = gameService.createGame(new CreateGameRequest(authToken, "Best Game!")).gameID();
 
         GameData expectedGameData = new GameData(gameID, null, null, "Best Game!", new ChessGame());
         assertDoesNotThrow(() -> {
@@ -63,7 +64,7 @@ public class GameServiceTests {
 
     @Test
     void testJoinGameGood() throws DataAccessException {
-        int gameID = gameDAO.createGame("Best Game!");
+        long gameID = gameDAO.createGame("Best Game!");
 
         JoinGameResult result = gameService.joinGame(new JoinGameRequest(authToken, "WHITE", gameID));
         Assertions.assertEquals(new JoinGameResult(null), result);
@@ -71,7 +72,7 @@ public class GameServiceTests {
 
     @Test
     void testJoinGameBad() throws DataAccessException {
-        int gameID = gameDAO.createGame("Best Game!");
+        long gameID = gameDAO.createGame("Best Game!");
         GameData gameData = gameDAO.getGame(gameID);
         gameData = new GameData(gameID, "TakenWhite", "TakenBlack", gameData.gameName(), gameData.game());
         gameDAO.updateGame(gameData);
@@ -97,8 +98,54 @@ public class GameServiceTests {
 
         ListGamesResult result = gameService.listGames(new ListGamesRequest(authToken));
 
-        Collection<GameData> gamesList = gameDAO.listGames();
+        Collection<GameData> gamesList = gameDAO.listGames(GameQuery.ALL);
         Assertions.assertEquals(new ListGamesResult(gamesList, null), result);
+        Assertions.assertNull(result.games().iterator().next().game());
+    }
+
+    @Test
+    void testListGamesBoundedByDefault() throws DataAccessException {
+        for (int i = 0; i < GameService.MAX_PAGE_SIZE + 10; i++) {
+            gameDAO.createGame("Game " + i);
+        }
+
+        ListGamesResult first = gameService.listGames(new ListGamesRequest(authToken));
+        Assertions.assertEquals(GameService.DEFAULT_PAGE_SIZE, first.games().size());
+        Assertions.assertNotNull(first.nextCursor());
+
+        ListGamesResult capped = gameService.listGames(new ListGamesRequest(authToken, null, 1000, null, null));
+        Assertions.assertEquals(GameService.MAX_PAGE_SIZE, capped.games().size());
+        ListGamesResult rest = gameService.listGames(new ListGamesRequest(authToken, capped.nextCursor(), null,
+                null, null));
+        Assertions.assertEquals(10, rest.games().size());
+        Assertions.assertNull(rest.nextCursor());
+    }
+
+    @Test
+    void testListGamesPaged() throws DataAccessException {
+        for (int i = 0; i < 5; i++) {
+            gameDAO.createGame("Game " + i);
+        }
+        long joined = gameDAO.listGames(GameQuery.ALL).get(2).gameID();
+        gameService.joinGame(new JoinGameRequest(authToken, "WHITE", joined));
+
+        ListGamesResult first = gameService.listGames(new ListGamesRequest(authToken, null, 2, null, null));
+        Assertions.assertEquals(2, first.games().size());
+        Assertions.assertNotNull(first.nextCursor());
+
+        ListGamesResult rest = gameService.listGames(new ListGamesRequest(authToken, first.nextCursor(), 10, null,
+                null));
+        Assertions.assertEquals(3, rest.games().size());
+        Assertions.assertNull(rest.nextCursor());
+        Assertions.assertTrue(rest.games().iterator().next().gameID() > first.nextCursor());
+
+        ListGamesResult mine = gameService.listGames(new ListGamesRequest(authToken, null, null, null, "Test"));
+        Assertions.assertEquals(joined, mine.games().iterator().next().gameID());
+        ListGamesResult open = gameService.listGames(new ListGamesRequest(authToken, null, null, true, null));
+        Assertions.assertEquals(5, open.games().size());
+
+        ListGamesResult bad = gameService.listGames(new ListGamesRequest(authToken, null, 0, null, null));
+        Assertions.assertEquals("Error: bad request", bad.message());
     }
 
     @Test
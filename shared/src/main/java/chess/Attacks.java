@@ -0,0 +1,246 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+
+/**
+ * Precomputed attack tables for every piece type, indexed by bitboard square
+ * (see {@link ChessBoard#squareOf(ChessPosition)}).
+ * <p>
+ * Knights, kings and pawns use a plain lookup per square. Bishops and rooks use
+ * magic bitboards: the blockers on a slider's relevant rays are multiplied by a
+ * per-square magic number so the top bits of the product index a table holding
+ * the attack set for that exact blocker arrangement. Every table is built once
+ * when the class is loaded. The magic numbers themselves were found ahead of
+ * time by a random search over sparse candidates, which is far too slow to
+ * repeat on every startup.
+ * <p>
+ * The between and line tables relate pairs of squares that share a rank, file
+ * or diagonal, which is what pin and check detection need.
+ */
+final class Attacks {
+    private static final int[] KNIGHT_DIRECTIONS = {2, 1, 2, -1, -2, 1, -2, -1, 1, 2, 1, -2, -1, 2, -1, -2};
+    private static final int[] KING_DIRECTIONS = {0, 1, 0, -1, 1, 0, 1, 1, 1, -1, -1, 0, -1, 1, -1, -1};
+    private static final int[] BISHOP_DIRECTIONS = {1, 1, 1, -1, -1, 1, -1, -1};
+    private static final int[] ROOK_DIRECTIONS = {0, 1, 0, -1, 1, 0, -1, 0};
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN = new long[2][64];
+
+    private static final long[] BISHOP_MAGIC_NUMBERS = {
+            0x0020428400408200L, 0x0004100440408000L, 0x82041C2482010010L, 0x0484142D80000000L,
+            0x0002021008101042L, 0x4200882008014100L, 0x0004A81108200000L, 0x0001004802011100L,
+            0x1040401024010048L, 0x0042041004204881L, 0x2008110810810020L, 0x240008060440C288L,
+            0x0021020210050020L, 0x0022810402408800L, 0x802060410420A042L, 0x0081020086481280L,
+            0x4110400860C10400L, 0x20040021240C0240L, 0x4802044104040080L, 0x00008868020042C0L,
+            0x0002204400A00002L, 0x2820408488084000L, 0x08006024041C0420L, 0x4102088190808810L,
+            0x0102201040094200L, 0xAB0A0814203800A0L, 0x4044209010008080L, 0x2020120000400440L,
+            0x4400840034802011L, 0x425051000600A200L, 0x412094012A010410L, 0x08084080A04C0440L,
+            0x0304022241C10401L, 0x0200841000210200L, 0x0602004100100100L, 0x0C04020081080080L,
+            0x00A0040400004102L, 0x30348102000100A2L, 0x10041401700C0500L, 0x8000840282424212L,
+            0x0810822110002000L, 0x00204814500084A4L, 0x0002022228009410L, 0x200000420080A810L,
+            0x0000200411108400L, 0x8240100400400020L, 0x01A4108404442100L, 0x0A020A0201A20209L,
+            0x00010C0920881A42L, 0x022104022202A400L, 0x80000022011008A0L, 0x5000441020884001L,
+            0x1001001202020008L, 0x4808202102308024L, 0x4008023004051104L, 0x44040802004E0800L,
+            0x000040A210066040L, 0x000002060A01050DL, 0x52A0040106431002L, 0x0000040200841C08L,
+            0xF000010828030409L, 0x0041201120190500L, 0x0404082081122212L, 0x000408009C008200L
+    };
+    private static final long[] ROOK_MAGIC_NUMBERS = {
+            0x008000908064C000L, 0x0040200040001000L, 0x0180100080A0010AL, 0x8880041000800800L,
+            0x1200100201200804L, 0x0200020004011008L, 0x2180010000800600L, 0x0200005088210204L,
+            0x0000800080204001L, 0x1000804000802001L, 0x8240801000200080L, 0x8F80801000800801L,
+            0x008180800C001800L, 0x0100800200800400L, 0x0A02000102000408L, 0x8020802300104280L,
+            0x0080004000402000L, 0xE010104000402000L, 0x0800808010002000L, 0xA280210008100100L,
+            0x0001818014000800L, 0xA002010100080400L, 0x0080240001020870L, 0x0001020004048845L,
+            0x0081826280004004L, 0x2020810900284000L, 0x0200100080802000L, 0x0001002100081000L,
+            0x8083080100100500L, 0x4406000901000400L, 0x0005020080800100L, 0x0090204200008114L,
+            0x0010400094800420L, 0x0900804000802002L, 0x0201001841002000L, 0x4100080080801000L,
+            0x4540040080800800L, 0x0002001004040020L, 0x0281195814001002L, 0x1240800040800100L,
+            0x0880042000524004L, 0x02C080410206002CL, 0x0801200241050010L, 0x8400080010008080L,
+            0x0008000500090010L, 0x0082009084020008L, 0x01818902102C0008L, 0x8308408041020004L,
+            0x0200860C20410200L, 0x6020200090400080L, 0x0800900020008280L, 0x0000100020090100L,
+            0x0400800400080280L, 0x0050044010200801L, 0x0101004406000B00L, 0xC100066400870200L,
+            0x440680014012A501L, 0x1023012082044112L, 0x00804080200A0012L, 0x000420310A004A42L,
+            0x0023001004020801L, 0x0882001008040102L, 0x000230088118020CL, 0x0000019025040042L
+    };
+
+    private static final Magic[] BISHOP_MAGICS = new Magic[64];
+    private static final Magic[] ROOK_MAGICS = new Magic[64];
+
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT[square] = stepAttacks(square, KNIGHT_DIRECTIONS);
+            KING[square] = stepAttacks(square, KING_DIRECTIONS);
+            PAWN[TeamColor.WHITE.ordinal()][square] = stepAttacks(square, new int[]{1, 1, 1, -1});
+            PAWN[TeamColor.BLACK.ordinal()][square] = stepAttacks(square, new int[]{-1, 1, -1, -1});
+            BISHOP_MAGICS[square] = Magic.build(square, BISHOP_DIRECTIONS, BISHOP_MAGIC_NUMBERS[square]);
+            ROOK_MAGICS[square] = Magic.build(square, ROOK_DIRECTIONS, ROOK_MAGIC_NUMBERS[square]);
+        }
+
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                long pair = (1L << a) | (1L << b);
+                if (a != b && (rook(a, 0L) & (1L << b)) != 0) {
+                    BETWEEN[a][b] = rook(a, pair) & rook(b, pair);
+                    LINE[a][b] = (rook(a, 0L) & rook(b, 0L)) | pair;
+                } else if (a != b && (bishop(a, 0L) & (1L << b)) != 0) {
+                    BETWEEN[a][b] = bishop(a, pair) & bishop(b, pair);
+                    LINE[a][b] = (bishop(a, 0L) & bishop(b, 0L)) | pair;
+                }
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    /**
+     * @return squares a knight on the given square attacks
+     */
+    static long knight(int square) {
+        return KNIGHT[square];
+    }
+
+    /**
+     * @return squares a king on the given square attacks
+     */
+    static long king(int square) {
+        return KING[square];
+    }
+
+    /**
+     * @return squares a pawn of the given color attacks from the given square
+     */
+    static long pawn(TeamColor color, int square) {
+        return PAWN[color.ordinal()][square];
+    }
+
+    /**
+     * @return squares a bishop attacks given the board's occupancy, including
+     * the first blocker on each diagonal
+     */
+    static long bishop(int square, long occupied) {
+        return BISHOP_MAGICS[square].attacks(occupied);
+    }
+
+    /**
+     * @return squares a rook attacks given the board's occupancy, including
+     * the first blocker on each line
+     */
+    static long rook(int square, long occupied) {
+        return ROOK_MAGICS[square].attacks(occupied);
+    }
+
+    /**
+     * @return squares a queen attacks given the board's occupancy
+     */
+    static long queen(int square, long occupied) {
+        return bishop(square, occupied) | rook(square, occupied);
+    }
+
+    /**
+     * @return squares strictly between two squares on a shared rank, file or
+     * diagonal, or an empty set if they are not aligned
+     */
+    static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * @return every square on the full rank, file or diagonal through both
+     * squares, or an empty set if they are not aligned
+     */
+    static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    private static long stepAttacks(int square, int[] directions) {
+        long attacks = 0;
+        for (int i = 0; i < directions.length; i += 2) {
+            int row = square / 8 + directions[i];
+            int col = square % 8 + directions[i + 1];
+            if (onBoard(row, col)) {
+                attacks |= 1L << (row * 8 + col);
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Walks each ray one square at a time, stopping at the first occupied
+     * square. Only used to fill the magic tables.
+     */
+    private static long slidingAttacks(int square, long occupied, int[] directions) {
+        long attacks = 0;
+        for (int i = 0; i < directions.length; i += 2) {
+            int row = square / 8 + directions[i];
+            int col = square % 8 + directions[i + 1];
+            while (onBoard(row, col)) {
+                long bit = 1L << (row * 8 + col);
+                attacks |= bit;
+                if ((occupied & bit) != 0) {
+                    break;
+                }
+                row += directions[i];
+                col += directions[i + 1];
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * @return the squares whose occupancy can change a slider's attacks, which
+     * is every ray square except the last one before the edge
+     */
+    private static long relevantMask(int square, int[] directions) {
+        long mask = 0;
+        for (int i = 0; i < directions.length; i += 2) {
+            int row = square / 8 + directions[i];
+            int col = square % 8 + directions[i + 1];
+            while (onBoard(row + directions[i], col + directions[i + 1])) {
+                mask |= 1L << (row * 8 + col);
+                row += directions[i];
+                col += directions[i + 1];
+            }
+        }
+        return mask;
+    }
+
+    private static boolean onBoard(int row, int col) {
+        return 0 <= row && row < 8 && 0 <= col && col < 8;
+    }
+
+    /**
+     * Magic lookup for a single slider on a single square
+     */
+    private record Magic(long mask, long magic, int shift, long[] table) {
+        long attacks(long occupied) {
+            return table[(int) (((occupied & mask) * magic) >>> shift)];
+        }
+
+        static Magic build(int square, int[] directions, long magic) {
+            long mask = relevantMask(square, directions);
+            int shift = 64 - Long.bitCount(mask);
+            long[] table = new long[1 << Long.bitCount(mask)];
+            boolean[] filled = new boolean[table.length];
+
+            // Visit every blocker subset of the mask and store its attacks
+            long subset = 0;
+            do {
+                int index = (int) ((subset * magic) >>> shift);
+                long attacks = slidingAttacks(square, subset, directions);
+                if (filled[index] && table[index] != attacks) {
+                    throw new IllegalStateException("Bad magic number for square " + square);
+                }
+                filled[index] = true;
+                table[index] = attacks;
+                subset = (subset - mask) & mask;
+            } while (subset != 0);
+
+            return new Magic(mask, magic, shift, table);
+        }
+    }
+}
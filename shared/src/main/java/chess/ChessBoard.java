@@ -1,21 +1,44 @@
 package chess;
 
+import chess.ChessGame.TeamColor;
 import chess.ChessPiece.PieceType;
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.Arrays;
-import java.util.Objects;
 
 /**
  * A chessboard that can hold and rearrange chess pieces.
  * <p>
+ * Pieces are stored as bitboards: one 64-bit occupancy mask for each colored
+ * piece kind, plus aggregate masks for each color and the whole board. Bit
+ * {@code (row - 1) * 8 + (column - 1)} represents a square, so a1 is bit 0 and
+ * h8 is bit 63. The {@link ChessPosition} based methods are a view over those
+ * masks.
+ * <p>
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessBoard.Adapter.class)
 public class ChessBoard {
-    public ChessPiece[][] board;
+    /**
+     * Number of distinct colored piece kinds, six types for each team
+     */
+    static final int PIECE_KINDS = 12;
+
+    private static final PieceType[] TYPES = PieceType.values();
+    private static final TeamColor[] COLORS = TeamColor.values();
+
+    private long[] pieces = new long[PIECE_KINDS];
+    private long[] colors = new long[2];
+    private long occupied;
 
     public ChessBoard() {
-        board = new ChessPiece[8][8];
     }
 
     /**
@@ -31,6 +54,40 @@ public class ChessBoard {
         return 1 <= row && row <= 8 && 1 <= column && column <= 8;
     }
 
+    /**
+     * Converts a position into its bitboard square index
+     *
+     * @param position a valid position on the board
+     * @return square index from 0 (a1) to 63 (h8)
+     */
+    public static int squareOf(ChessPosition position) {
+        return (position.getRow() - 1) * 8 + position.getColumn() - 1;
+    }
+
+    /**
+     * Converts a bitboard square index back into a position
+     *
+     * @param square square index from 0 (a1) to 63 (h8)
+     * @return the matching position
+     */
+    public static ChessPosition positionOf(int square) {
+        return ChessPosition.of(square / 8 + 1, square % 8 + 1);
+    }
+
+    /**
+     * @return index of the bitboard holding pieces of the given color and type
+     */
+    static int pieceIndex(TeamColor color, PieceType type) {
+        return color.ordinal() * TYPES.length + type.ordinal();
+    }
+
+    /**
+     * @return the piece represented by the given bitboard index
+     */
+    static ChessPiece pieceFor(int index) {
+        return ChessPiece.of(COLORS[index / TYPES.length], TYPES[index % TYPES.length]);
+    }
+
     /**
      * Adds a chess piece to the chessboard
      *
@@ -38,10 +95,11 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        int row = position.getRow() - 1;
-        int column = position.getColumn() - 1;
-
-        board[row][column] = piece;
+        int square = squareOf(position);
+        clear(square);
+        if (piece != null) {
+            put(square, pieceIndex(piece.getTeamColor(), piece.getPieceType()));
+        }
     }
 
     /**
@@ -50,10 +108,7 @@ public class ChessBoard {
      * @param position where to add the piece to
      */
     public void removePiece(ChessPosition position) {
-        int row = position.getRow() - 1;
-        int column = position.getColumn() - 1;
-
-        board[row][column] = null;
+        clear(squareOf(position));
     }
 
     /**
@@ -64,12 +119,123 @@ public class ChessBoard {
      * position
      */
     public ChessPiece getPiece(ChessPosition position) {
-        int row = position.getRow() - 1;
-        int column = position.getColumn() - 1;
-        if (isValidPosition(position)) {
-            return board[row][column];
+        if (!isValidPosition(position)) {
+            return null;
+        }
+        int index = pieceAt(squareOf(position));
+        return index < 0 ? null : pieceFor(index);
+    }
+
+    /**
+     * @return bitboard of every piece of the given color and type
+     */
+    public long getPieces(TeamColor color, PieceType type) {
+        return pieces[pieceIndex(color, type)];
+    }
+
+    /**
+     * @return bitboard of every piece belonging to the given team
+     */
+    public long getOccupancy(TeamColor color) {
+        return colors[color.ordinal()];
+    }
+
+    /**
+     * @return bitboard of every occupied square
+     */
+    public long getOccupancy() {
+        return occupied;
+    }
+
+    /**
+     * Determines if any piece of the given team attacks a position
+     *
+     * @param position the position being attacked
+     * @param byColor  the attacking team
+     * @return true if a piece of that team could capture on the position
+     */
+    public boolean isSquareAttacked(ChessPosition position, TeamColor byColor) {
+        return attackersOf(squareOf(position), byColor, occupied) != 0;
+    }
+
+    /**
+     * Finds every piece of a team attacking a square by probing outward from the
+     * square with each piece's attack pattern. Pawns are found with the opposite
+     * color's pawn attacks, since a pawn attacks a square exactly when a pawn of
+     * the other color on that square would attack it.
+     *
+     * @param square   square index from 0 to 63
+     * @param byColor  the attacking team
+     * @param occupied occupancy used to block sliding pieces
+     * @return bitboard of the attacking pieces
+     */
+    long attackersOf(int square, TeamColor byColor, long occupied) {
+        TeamColor defender = byColor == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+        long queens = getPieces(byColor, PieceType.QUEEN);
+        return (Attacks.pawn(defender, square) & getPieces(byColor, PieceType.PAWN))
+                | (Attacks.knight(square) & getPieces(byColor, PieceType.KNIGHT))
+                | (Attacks.king(square) & getPieces(byColor, PieceType.KING))
+                | (Attacks.bishop(square, occupied) & (getPieces(byColor, PieceType.BISHOP) | queens))
+                | (Attacks.rook(square, occupied) & (getPieces(byColor, PieceType.ROOK) | queens));
+    }
+
+    /**
+     * Finds which piece occupies a square
+     *
+     * @param square square index from 0 to 63
+     * @return bitboard index of the piece, or -1 if the square is empty
+     */
+    int pieceAt(int square) {
+        long bit = 1L << square;
+        if ((occupied & bit) == 0) {
+            return -1;
         }
-        return null;
+        int start = (colors[0] & bit) != 0 ? 0 : TYPES.length;
+        for (int i = start; i < start + TYPES.length; i++) {
+            if ((pieces[i] & bit) != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Places a piece on an empty square
+     *
+     * @param square square index from 0 to 63
+     * @param index  bitboard index of the piece
+     */
+    void put(int square, int index) {
+        long bit = 1L << square;
+        pieces[index] |= bit;
+        colors[index / TYPES.length] |= bit;
+        occupied |= bit;
+    }
+
+    /**
+     * Empties a square, whatever is on it
+     *
+     * @param square square index from 0 to 63
+     */
+    void clear(int square) {
+        long mask = ~(1L << square);
+        for (int i = 0; i < PIECE_KINDS; i++) {
+            pieces[i] &= mask;
+        }
+        colors[0] &= mask;
+        colors[1] &= mask;
+        occupied &= mask;
+    }
+
+    /**
+     * @return an independent board holding the same pieces
+     */
+    ChessBoard copy() {
+        ChessBoard copy = new ChessBoard();
+        copy.pieces = pieces.clone();
+        copy.colors = colors.clone();
+        copy.occupied = occupied;
+        return copy;
     }
 
     /**
@@ -77,32 +243,27 @@ public class ChessBoard {
      * (How the game of chess normally starts)
      */
     public void resetBoard() {
-        board = new ChessPiece[8][8];
-        for (int i = 0; i < 8; i++) {
-            if (i == 0) {
-                setKingRow(0, ChessGame.TeamColor.WHITE);
-            } else if (i == 1) {
-                setPawnRow(1, ChessGame.TeamColor.WHITE);
-            } else if (i == 6) {
-                setPawnRow(6, ChessGame.TeamColor.BLACK);
-            } else if (i == 7) {
-                setKingRow(7, ChessGame.TeamColor.BLACK);
-            }
-        }
+        Arrays.fill(pieces, 0L);
+        Arrays.fill(colors, 0L);
+        occupied = 0L;
+        setKingRow(0, TeamColor.WHITE);
+        setPawnRow(1, TeamColor.WHITE);
+        setPawnRow(6, TeamColor.BLACK);
+        setKingRow(7, TeamColor.BLACK);
     }
 
-    private void setPawnRow(int row, ChessGame.TeamColor teamColor) {
+    private void setPawnRow(int row, TeamColor teamColor) {
         for (int i = 0; i < 8; i++) {
-            board[row][i] = new ChessPiece(teamColor, ChessPiece.PieceType.PAWN);
+            put(row * 8 + i, pieceIndex(teamColor, PieceType.PAWN));
         }
     }
 
-    private void setKingRow(int row, ChessGame.TeamColor teamColor) {
+    private void setKingRow(int row, TeamColor teamColor) {
         PieceType[] kingRow = {PieceType.ROOK, PieceType.KNIGHT, PieceType.BISHOP,
                 PieceType.QUEEN, PieceType.KING,
                 PieceType.BISHOP, PieceType.KNIGHT, PieceType.ROOK};
         for (int i = 0; i < kingRow.length; i++) {
-            board[row][i] = new ChessPiece(teamColor, kingRow[i]);
+            put(row * 8 + i, pieceIndex(teamColor, kingRow[i]));
         }
     }
 
@@ -112,18 +273,130 @@ public class ChessBoard {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Objects.deepEquals(board, that.board);
+        return Arrays.equals(pieces, that.pieces);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(board);
+        return Arrays.hashCode(pieces);
     }
 
     @Override
     public String toString() {
-        return "ChessBoard{" +
-                "board=" + Arrays.deepToString(board) +
-                '}';
+        StringBuilder builder = new StringBuilder("ChessBoard{\n");
+        for (int row = 7; row >= 0; row--) {
+            builder.append('|');
+            for (int col = 0; col < 8; col++) {
+                int index = pieceAt(row * 8 + col);
+                builder.append(index < 0 ? ' ' : symbolFor(index)).append('|');
+            }
+            builder.append('\n');
+        }
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Reads and writes boards as their piece bitboards, in the same shape as
+     * the default field serialization. Boards saved before bitboards, as an
+     * 8x8 board array of pieces, are read too, so stored games keep their
+     * positions.
+     */
+    static class Adapter extends TypeAdapter<ChessBoard> {
+        private final ChessPiece.Adapter pieceAdapter = new ChessPiece.Adapter();
+
+        @Override
+        public void write(JsonWriter out, ChessBoard board) throws IOException {
+            if (board == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("pieces").beginArray();
+            for (long bitboard : board.pieces) {
+                out.value(bitboard);
+            }
+            out.endArray();
+            out.name("colors").beginArray();
+            for (long bitboard : board.colors) {
+                out.value(bitboard);
+            }
+            out.endArray();
+            out.name("occupied").value(board.occupied);
+            out.endObject();
+        }
+
+        @Override
+        public ChessBoard read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            ChessBoard board = new ChessBoard();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                } else if (name.equals("pieces")) {
+                    readPieces(in, board);
+                } else if (name.equals("board")) {
+                    readLegacyBoard(in, board);
+                } else {
+                    // colors and occupied are worked out again from the pieces
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return board;
+        }
+
+        private static void readPieces(JsonReader in, ChessBoard board) throws IOException {
+            in.beginArray();
+            for (int index = 0; in.hasNext(); index++) {
+                long bitboard = in.nextLong();
+                if (index >= PIECE_KINDS) {
+                    continue;
+                }
+                for (long bits = bitboard; bits != 0; bits &= bits - 1) {
+                    board.put(Long.numberOfTrailingZeros(bits), index);
+                }
+            }
+            in.endArray();
+        }
+
+        /**
+         * Reads board[row - 1][column - 1], each a piece or null
+         */
+        private void readLegacyBoard(JsonReader in, ChessBoard board) throws IOException {
+            in.beginArray();
+            for (int row = 0; in.hasNext(); row++) {
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                in.beginArray();
+                for (int column = 0; in.hasNext(); column++) {
+                    ChessPiece piece = pieceAdapter.read(in);
+                    if (piece != null && piece.getTeamColor() != null && piece.getPieceType() != null
+                            && row < 8 && column < 8) {
+                        board.put(row * 8 + column, pieceIndex(piece.getTeamColor(), piece.getPieceType()));
+                    }
+                }
+                in.endArray();
+            }
+            in.endArray();
+        }
+    }
+
+    private static char symbolFor(int index) {
+        char symbol = switch (TYPES[index % TYPES.length]) {
+            case KING -> 'k';
+            case QUEEN -> 'q';
+            case BISHOP -> 'b';
+            case KNIGHT -> 'n';
+            case ROOK -> 'r';
+            case PAWN -> 'p';
+        };
+        return index < TYPES.length ? Character.toUpperCase(symbol) : symbol;
     }
 }
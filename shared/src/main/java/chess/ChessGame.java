@@ -2,7 +2,19 @@ package chess;
 
 import chess.ChessPiece.PieceType;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 
 /**
@@ -11,21 +23,52 @@ import java.util.Collection;
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessGame.Adapter.class)
 public class ChessGame {
+    /**
+     * Castling rights bits, set while the matching castle is still allowed
+     */
+    static final int WHITE_KINGSIDE = 1;
+    static final int WHITE_QUEENSIDE = 2;
+    static final int BLACK_KINGSIDE = 4;
+    static final int BLACK_QUEENSIDE = 8;
+    static final int ALL_CASTLING = WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE;
+
+    /**
+     * Marker for an absent square, such as no en passant capture being available
+     */
+    static final int NO_SQUARE = -1;
+
     private ChessBoard gameBoard = new ChessBoard();
     private TeamColor teamTurn = TeamColor.WHITE;
-    private ChessPosition whiteKingPosition = new ChessPosition(1, 5);
-    private boolean whiteKingMoved = false;
-    private ChessPosition blackKingPosition = new ChessPosition(8, 5);
-    private boolean blackKingMoved = false;
-    private boolean whiteRookLMoved = false;
-    private boolean whiteRookRMoved = false;
-    private boolean blackRookLMoved = false;
-    private boolean blackRookRMoved = false;
-    private boolean passantTurn = false;
+    private int castlingRights = ALL_CASTLING;
+    private int enPassantSquare = NO_SQUARE;
+    private int ply;
+    private transient GameStatus status;
+
+    /**
+     * One entry per move made since the board was set, so the moves can be
+     * taken back. Each entry packs the encoded move in its low 32 bits, then
+     * the captured piece's bitboard index (15 for none), the castling rights
+     * and the en passant square plus one from before the move. The Zobrist
+     * key from before each move is kept alongside it.
+     */
+    private transient long[] history;
+    private transient long[] keyHistory;
+    private transient int historySize;
+
+    /**
+     * Zobrist key of the current position. Everything that changes the
+     * position sets it straight away, so reading it never writes and a game
+     * can still be read from many threads at once. Gson fills in the fields
+     * after the constructor runs, so the adapter works it out again after
+     * reading a game.
+     */
+    private transient long zobristKey;
 
     public ChessGame() {
         gameBoard.resetBoard();
+        rekey();
     }
 
     /**
@@ -42,6 +85,9 @@ public class ChessGame {
      */
     public void setTeamTurn(TeamColor team) {
         teamTurn = team;
+        status = null;
+        historySize = 0;
+        rekey();
     }
 
     /**
@@ -57,105 +103,30 @@ public class ChessGame {
             return null;
         }
 
-        TeamColor color = piece.getTeamColor();
-        ChessPosition savedKingPosition = null;
-        if (piece.getPieceType() == PieceType.KING) {
-            savedKingPosition = color == TeamColor.WHITE ? whiteKingPosition : blackKingPosition;
-        }
-        Collection<ChessMove> validMoves = new ArrayList<>();
-        Collection<ChessMove> moves = piece.pieceMoves(gameBoard, startPosition);
-
-        for (ChessMove move : moves) {
-            // Save any captured piece
-            ChessPiece capturedPiece = gameBoard.getPiece(move.getEndPosition());
-            if (piece.getPieceType() == PieceType.KING) {
-                if (color == TeamColor.WHITE) {
-                    whiteKingPosition = move.getEndPosition();
-                } else {
-                    blackKingPosition = move.getEndPosition();
-                }
-            }
-
-            // Mock the move
-            gameBoard.addPiece(move.getEndPosition(), piece);
-            gameBoard.removePiece(move.getStartPosition());
-
-            if (!isInCheck(color)) {
-                validMoves.add(move);
-            }
-
-            // Now undo it
-            gameBoard.addPiece(startPosition, piece);
-            if (capturedPiece != null) {
-                gameBoard.addPiece(move.getEndPosition(), capturedPiece);
-            } else {
-                gameBoard.removePiece(move.getEndPosition());
-            }
-            if (savedKingPosition != null) {
-                if (color == TeamColor.WHITE) {
-                    whiteKingPosition = savedKingPosition;
-                } else {
-                    blackKingPosition = savedKingPosition;
-                }
-            }
-        }
-
-        if (piece.getPieceType() == PieceType.KING) {
-            validCastleMoves(validMoves, startPosition);
+        MoveList moves = new MoveList(32);
+        generateMoves(piece.getTeamColor(), 1L << ChessBoard.squareOf(startPosition), moves);
+        Collection<ChessMove> validMoves = new ArrayList<>(moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            validMoves.add(Move.toChessMove(moves.get(i)));
         }
-        if (piece.getPieceType() == PieceType.PAWN && passantTurn) {
-            validEnPassantMoves(validMoves, startPosition);
-        }
-
         return validMoves;
     }
 
-    private void validCastleMoves(Collection<ChessMove> validMoves, ChessPosition startPosition) {
-        ChessPiece piece = gameBoard.getPiece(startPosition);
-        boolean isWhite = piece.getTeamColor() == TeamColor.WHITE;
-        boolean kingMoved = isWhite ? whiteKingMoved : blackKingMoved;
-        boolean rookLMoved = isWhite ? whiteRookLMoved : blackRookLMoved;
-        boolean rookRMoved = isWhite ? whiteRookRMoved : blackRookRMoved;
-        int row = isWhite ? 1 : 8;
-        ChessPosition kingPos = isWhite ? whiteKingPosition : blackKingPosition;
-
-        if (!kingMoved) {
-            if (!rookLMoved) {
-                ChessPosition midKing = new ChessPosition(row, 4);
-                ChessPosition endPos = new ChessPosition(row, 3);
-                ChessPosition midRook = new ChessPosition(row, 2);
-                if (validMoves.contains(new ChessMove(kingPos, midKing, null)) && gameBoard.getPiece(midKing) == null
-                        && gameBoard.getPiece(endPos) == null && gameBoard.getPiece(midRook) == null) {
-                    validMoves.add(new ChessMove(startPosition, endPos, null));
-                }
-            }
-            if (!rookRMoved) {
-                ChessPosition midKing = new ChessPosition(row, 6);
-                ChessPosition endPos = new ChessPosition(row, 7);
-                if (validMoves.contains(new ChessMove(kingPos, midKing, null)) && gameBoard.getPiece(midKing) == null
-                        && gameBoard.getPiece(endPos) == null) {
-                    validMoves.add(new ChessMove(startPosition, endPos, null));
-                }
-            }
-        }
+    /**
+     * Fills a list with every legal move for the team whose turn it is. The
+     * list is cleared first, so one list can be reused across positions.
+     *
+     * @param moves list to fill with moves encoded by {@link Move}
+     */
+    public void legalMoves(MoveList moves) {
+        moves.clear();
+        generateMoves(teamTurn, ~0L, moves);
     }
 
-    private void validEnPassantMoves(Collection<ChessMove> validMoves, ChessPosition startPosition) {
-        ChessPosition leftSide = new ChessPosition(startPosition.getRow(), startPosition.getColumn() - 1);
-        ChessPosition rightSide = new ChessPosition(startPosition.getRow(), startPosition.getColumn() + 1);
-        ChessPiece piece = gameBoard.getPiece(startPosition);
-        ChessPiece left = gameBoard.getPiece(leftSide);
-        ChessPiece right = gameBoard.getPiece(rightSide);
-        int direction = piece.getTeamColor() == TeamColor.WHITE ? 1 : -1;
-
-        if (left != null && left.getPieceType() == PieceType.PAWN && left.getTeamColor() != teamTurn) {
-            validMoves.add(new ChessMove(startPosition,
-                    new ChessPosition(startPosition.getRow() + direction, startPosition.getColumn() - 1), null));
-        }
-        if (right != null && right.getPieceType() == PieceType.PAWN && right.getTeamColor() != teamTurn) {
-            validMoves.add(new ChessMove(startPosition,
-                    new ChessPosition(startPosition.getRow() + direction, startPosition.getColumn() + 1), null));
-        }
+    private void generateMoves(TeamColor color, long fromMask, MoveList moves) {
+        // Only the team to move can capture en passant
+        int passant = color == teamTurn ? enPassantSquare : NO_SQUARE;
+        MoveGenerator.legalMoves(gameBoard, color, castlingRights, passant, fromMask, moves);
     }
 
     /**
@@ -165,95 +136,223 @@ public class ChessGame {
      * @throws InvalidMoveException if move is invalid
      */
     public void makeMove(ChessMove move) throws InvalidMoveException {
-        ChessPiece pieceToMove = gameBoard.getPiece(move.getStartPosition());
-        if (pieceToMove == null || pieceToMove.getTeamColor() != teamTurn) {
+        if (!ChessBoard.isValidPosition(move.getStartPosition())
+                || !ChessBoard.isValidPosition(move.getEndPosition())) {
+            throw new InvalidMoveException();
+        }
+        makeMove(Move.fromChessMove(move));
+    }
+
+    /**
+     * Makes a move encoded by {@link Move}. Flags on the move are ignored, the
+     * move is matched against the legal moves by its squares and promotion.
+     *
+     * @param move encoded move to preform
+     * @throws InvalidMoveException if move is invalid
+     */
+    public void makeMove(int move) throws InvalidMoveException {
+        int from = Move.from(move);
+        int piece = gameBoard.pieceAt(from);
+        if (piece < 0 || ChessBoard.pieceFor(piece).getTeamColor() != teamTurn) {
             throw new InvalidMoveException();
         }
 
-        Collection<ChessMove> validMoves = validMoves(move.getStartPosition());
-        if (!validMoves.contains(move)) {
+        MoveList moves = new MoveList(32);
+        generateMoves(teamTurn, 1L << from, moves);
+        int legalMove = moves.find(move);
+        if (legalMove == Move.NONE) {
             throw new InvalidMoveException();
         }
+        applyMove(legalMove);
+    }
 
-        switch (pieceToMove.getPieceType()) {
-            case PieceType.KING:
-                makeCastleMove(move);
-
-                // Update kings position
-                if (teamTurn == TeamColor.WHITE) {
-                    whiteKingPosition = move.getEndPosition();
-                    whiteKingMoved = true;
-                } else {
-                    blackKingPosition = move.getEndPosition();
-                    blackKingMoved = true;
-                }
-            case PieceType.ROOK:
-                int baseRow = (teamTurn == TeamColor.WHITE) ? 1 : 8;
-                if (move.getStartPosition().equals(new ChessPosition(baseRow, 1))) {
-                    if (teamTurn == TeamColor.WHITE) {
-                        whiteRookLMoved = true;
-                    } else {
-                        blackRookLMoved = true;
-                    }
-                } else if (move.getStartPosition().equals(new ChessPosition(baseRow, 8))) {
-                    if (teamTurn == TeamColor.WHITE) {
-                        whiteRookRMoved = true;
-                    } else {
-                        blackRookRMoved = true;
-                    }
-                }
-            case PieceType.PAWN:
-                passantTurn = false;
-                baseRow = (teamTurn == TeamColor.WHITE) ? 2 : 7;
-                int direction = (teamTurn == TeamColor.WHITE) ? 2 : -2;
-                if (move.getStartPosition().getRow() == baseRow
-                        && move.getEndPosition().getRow() == baseRow + direction) {
-                    passantTurn = true;
-                }
-                if (gameBoard.getPiece(move.getEndPosition()) == null) {
-                    ChessPosition side = new ChessPosition(move.getStartPosition().getRow(),
-                            move.getEndPosition().getColumn());
-                    ChessPiece sidePiece = gameBoard.getPiece(side);
-                    if (sidePiece != null && sidePiece.getPieceType() == PieceType.PAWN) {
-                        gameBoard.removePiece(side);
-                    }
-                }
-            default:
-                if (move.getPromotionPiece() != null) {
-                    pieceToMove = new ChessPiece(teamTurn, move.getPromotionPiece());
-                }
+    /**
+     * Plays a move straight from {@link #legalMoves(MoveList)} without
+     * generating moves again to check it, for callers walking the move tree
+     *
+     * @param move legal move encoded by {@link Move}, with its flags
+     */
+    void makeLegalMove(int move) {
+        applyMove(move);
+    }
+
+    /**
+     * Plays a legal move, relying on its flags for castling, en passant and
+     * double pawn pushes, and records what unmakeMove needs to take it back
+     */
+    private void applyMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = gameBoard.pieceAt(from);
+        int forward = teamTurn == TeamColor.WHITE ? 8 : -8;
+        int captured = gameBoard.pieceAt(to);
+        int capturedSquare = to;
+
+        long key = getZobristKey();
+        key ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(gameBoard, teamTurn, enPassantSquare);
+
+        if (Move.hasFlag(move, Move.CASTLING)) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            int rookTo = (from + to) / 2;
+            int rook = moveRook(rookFrom, rookTo);
+            key ^= Zobrist.piece(rook, rookFrom) ^ Zobrist.piece(rook, rookTo);
+        } else if (Move.hasFlag(move, Move.EN_PASSANT)) {
+            capturedSquare = to - forward;
+            captured = gameBoard.pieceAt(capturedSquare);
+            gameBoard.clear(capturedSquare);
+        }
+        if (captured >= 0) {
+            key ^= Zobrist.piece(captured, capturedSquare);
+        }
+
+        pushHistory((move & 0xFFFFFFFFL) | ((long) (captured & 0xF) << 32) | ((long) castlingRights << 36)
+                | ((long) (enPassantSquare + 1) << 40), zobristKey);
+
+        key ^= Zobrist.piece(piece, from);
+        PieceType promotion = Move.promotion(move);
+        if (promotion != null) {
+            piece = ChessBoard.pieceIndex(teamTurn, promotion);
+        }
+        key ^= Zobrist.piece(piece, to);
+
+        gameBoard.clear(to);
+        gameBoard.clear(from);
+        gameBoard.put(to, piece);
+        castlingRights &= ~(castlingRightsOn(from) | castlingRightsOn(to));
+        enPassantSquare = Move.hasFlag(move, Move.DOUBLE_PUSH) ? from + forward : NO_SQUARE;
+
+        TeamColor mover = teamTurn;
+        teamTurn = opponent(teamTurn);
+        ply++;
+        status = null;
+
+        key ^= Zobrist.sideToMove(mover) ^ Zobrist.sideToMove(teamTurn);
+        zobristKey = key ^ Zobrist.castling(castlingRights) ^ Zobrist.enPassant(gameBoard, teamTurn, enPassantSquare);
+    }
 
-                gameBoard.addPiece(move.getEndPosition(), pieceToMove);
-                gameBoard.removePiece(move.getStartPosition());
-                break;
+    /**
+     * Takes back the last move made, restoring the board, turn, castling
+     * rights and en passant square exactly as they were. Moves can be taken
+     * back one at a time until the board or turn was last set directly.
+     *
+     * @throws IllegalStateException if there is no move to take back
+     */
+    public void unmakeMove() {
+        if (historySize == 0) {
+            throw new IllegalStateException("No move to unmake");
+        }
+        long entry = history[--historySize];
+        zobristKey = keyHistory[historySize];
+        int move = (int) entry;
+        int captured = (int) (entry >>> 32) & 0xF;
+        int from = Move.from(move);
+        int to = Move.to(move);
+
+        teamTurn = opponent(teamTurn);
+        ply--;
+        castlingRights = (int) (entry >>> 36) & 0xF;
+        enPassantSquare = (int) (entry >>> 40) - 1;
+        status = null;
+
+        int piece = Move.promotion(move) != null
+                ? ChessBoard.pieceIndex(teamTurn, PieceType.PAWN) : gameBoard.pieceAt(to);
+        gameBoard.clear(to);
+        gameBoard.put(from, piece);
+
+        if (Move.hasFlag(move, Move.CASTLING)) {
+            moveRook((from + to) / 2, to > from ? from + 3 : from - 4);
+        }
+        if (captured != 0xF) {
+            int forward = teamTurn == TeamColor.WHITE ? 8 : -8;
+            gameBoard.put(Move.hasFlag(move, Move.EN_PASSANT) ? to - forward : to, captured);
         }
+    }
 
-        setTeamTurn(teamTurn == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE);
+    /**
+     * Gets the number of half-moves played in this game. It is stored with the
+     * game, so it keeps counting across saves, and setting the board or turn
+     * directly leaves it alone. It is not part of equals, two games in the
+     * same position are equal however they got there.
+     *
+     * @return the number of moves made by either team
+     */
+    public int getPly() {
+        return ply;
     }
 
-    private void makeCastleMove(ChessMove move) {
-        if ((teamTurn == TeamColor.WHITE && whiteKingMoved) || (teamTurn == TeamColor.BLACK && blackKingMoved)) {
-            return;
-        }
+    /**
+     * @return true if there is a move unmakeMove can take back
+     */
+    public boolean canUnmakeMove() {
+        return historySize > 0;
+    }
 
-        int row = teamTurn == TeamColor.WHITE ? 1 : 8;
-        ChessPosition kingPosition = teamTurn == TeamColor.WHITE ? whiteKingPosition : blackKingPosition;
-        ChessPosition rookStart;
-        ChessPosition rookEnd;
-
-        if (move.equals(new ChessMove(kingPosition, new ChessPosition(row, 3), null))) {
-            rookStart = new ChessPosition(row, 1);
-            rookEnd = new ChessPosition(row, 4);
-        } else if (move.equals(new ChessMove(kingPosition, new ChessPosition(row, 7), null))) {
-            rookStart = new ChessPosition(row, 8);
-            rookEnd = new ChessPosition(row, 6);
-        } else {
-            return;
+    private void pushHistory(long entry, long key) {
+        if (history == null) {
+            history = new long[64];
+            keyHistory = new long[64];
+        } else if (historySize == history.length) {
+            history = Arrays.copyOf(history, historySize * 2);
+            keyHistory = Arrays.copyOf(keyHistory, historySize * 2);
         }
+        history[historySize] = entry;
+        keyHistory[historySize++] = key;
+    }
 
-        ChessPiece rook = gameBoard.getPiece(rookStart);
-        gameBoard.removePiece(rookStart);
-        gameBoard.addPiece(rookEnd, rook);
+    /**
+     * @return bitboard index of the rook that was moved
+     */
+    private int moveRook(int from, int to) {
+        int rook = gameBoard.pieceAt(from);
+        gameBoard.clear(from);
+        gameBoard.put(to, rook);
+        return rook;
+    }
+
+    /**
+     * Gets the 64-bit Zobrist key of the current position, covering the
+     * pieces, the team to move, castling rights and any en passant capture
+     * that can actually be made. Equal positions always have equal keys, and
+     * different positions almost never share one. The key is kept up to date
+     * by makeMove and unmakeMove with a handful of XORs, so reading it is
+     * cheap. Like evaluateStatus, changes made directly to the board from
+     * getBoard are not seen.
+     *
+     * @return the position's key
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * Works the Zobrist key out from scratch, for when the position was set
+     * directly rather than by a move
+     */
+    private void rekey() {
+        zobristKey = Zobrist.keyOf(gameBoard, teamTurn, castlingRights, enPassantSquare);
+    }
+
+    private static TeamColor opponent(TeamColor color) {
+        return color == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+    }
+
+    /**
+     * Moving a piece from, or capturing on, a king or rook home square gives
+     * up the castles that piece takes part in
+     *
+     * @param square square index from 0 to 63
+     * @return castling rights bits tied to the square
+     */
+    private static int castlingRightsOn(int square) {
+        return switch (square) {
+            case 0 -> WHITE_QUEENSIDE;
+            case 4 -> WHITE_KINGSIDE | WHITE_QUEENSIDE;
+            case 7 -> WHITE_KINGSIDE;
+            case 56 -> BLACK_QUEENSIDE;
+            case 60 -> BLACK_KINGSIDE | BLACK_QUEENSIDE;
+            case 63 -> BLACK_KINGSIDE;
+            default -> 0;
+        };
     }
 
     /**
@@ -263,32 +362,14 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingPosition = null;
-        if (teamColor == TeamColor.WHITE) {
-            kingPosition = whiteKingPosition;
-        } else if (teamColor == TeamColor.BLACK) {
-            kingPosition = blackKingPosition;
+        long king = gameBoard.getPieces(teamColor, PieceType.KING);
+        if (king == 0) {
+            return false;
         }
 
-        // Check if any opponent's piece can capture the king
+        // Probe outward from the king for any opponent's piece that can capture it
         TeamColor opposingTeam = (teamColor == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = gameBoard.getPiece(position);
-                if (piece == null || piece.getTeamColor() != opposingTeam) {
-                    continue;
-                }
-
-                Collection<ChessMove> moves = piece.pieceMoves(gameBoard, position);
-                for (ChessMove move : moves) {
-                    if (move.getEndPosition().equals(kingPosition)) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
+        return gameBoard.attackersOf(Long.numberOfTrailingZeros(king), opposingTeam, gameBoard.getOccupancy()) != 0;
     }
 
     /**
@@ -298,18 +379,7 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = gameBoard.getPiece(position);
-                if (piece != null && piece.getTeamColor() == teamColor) {
-                    if (!validMoves(position).isEmpty()) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
+        return statusOf(teamColor) == GameStatus.CHECKMATE;
     }
 
     /**
@@ -320,44 +390,54 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        return isInCheckmate(teamColor) && !isInCheck(teamColor);
-    }
-
-    private void resetHasBeenMoved() {
-        whiteKingMoved = false;
-        blackKingMoved = false;
-        whiteRookLMoved = false;
-        whiteRookRMoved = false;
-        blackRookLMoved = false;
-        blackRookRMoved = false;
-
-        ChessPiece whiteKing = gameBoard.getPiece(new ChessPosition(1, 5));
-        ChessPiece blackKing = gameBoard.getPiece(new ChessPosition(8, 5));
-        if (whiteKing == null || whiteKing.getPieceType() != PieceType.KING
-                || whiteKing.getTeamColor() != TeamColor.WHITE) {
-            whiteKingMoved = true;
-        }
-        if (blackKing == null || blackKing.getPieceType() != PieceType.KING
-                || blackKing.getTeamColor() != TeamColor.BLACK) {
-            blackKingMoved = true;
-        }
+        return statusOf(teamColor) == GameStatus.STALEMATE;
+    }
 
-        ChessPiece leftWhiteRook = gameBoard.getPiece(new ChessPosition(1, 1));
-        ChessPiece rightWhiteRook = gameBoard.getPiece(new ChessPosition(1, 8));
-        if (leftWhiteRook == null || leftWhiteRook.getPieceType() != PieceType.ROOK) {
-            whiteRookLMoved = true;
-        }
-        if (rightWhiteRook == null || rightWhiteRook.getPieceType() != PieceType.ROOK) {
-            whiteRookRMoved = true;
+    /**
+     * Works out check, checkmate and stalemate for the team to move in a single
+     * pass. The search for legal moves stops at the first one found, and the
+     * result is cached until the next makeMove, setBoard or setTeamTurn. Changes
+     * made directly to the board from getBoard are not seen by the cache.
+     *
+     * @return the status of the team whose turn it is
+     */
+    public GameStatus evaluateStatus() {
+        GameStatus current = status;
+        if (current == null) {
+            current = computeStatus(teamTurn);
+            status = current;
         }
+        return current;
+    }
 
-        ChessPiece leftBlackRook = gameBoard.getPiece(new ChessPosition(8, 1));
-        ChessPiece rightBlackRook = gameBoard.getPiece(new ChessPosition(8, 8));
-        if (leftBlackRook == null || leftBlackRook.getPieceType() != PieceType.ROOK) {
-            blackRookLMoved = true;
+    private GameStatus statusOf(TeamColor teamColor) {
+        return teamColor == teamTurn ? evaluateStatus() : computeStatus(teamColor);
+    }
+
+    private GameStatus computeStatus(TeamColor teamColor) {
+        int passant = teamColor == teamTurn ? enPassantSquare : NO_SQUARE;
+        boolean check = isInCheck(teamColor);
+        if (MoveGenerator.hasLegalMove(gameBoard, teamColor, castlingRights, passant)) {
+            return check ? GameStatus.CHECK : GameStatus.IN_PROGRESS;
         }
-        if (rightBlackRook == null || rightBlackRook.getPieceType() != PieceType.ROOK) {
-            blackRookRMoved = true;
+        return check ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+    }
+
+    /**
+     * Grants each castle whose king and rook are still on their home squares
+     */
+    private void resetCastlingRights() {
+        castlingRights = 0;
+        long rooks;
+        if ((gameBoard.getPieces(TeamColor.WHITE, PieceType.KING) & (1L << 4)) != 0) {
+            rooks = gameBoard.getPieces(TeamColor.WHITE, PieceType.ROOK);
+            castlingRights |= (rooks & (1L << 7)) != 0 ? WHITE_KINGSIDE : 0;
+            castlingRights |= (rooks & 1L) != 0 ? WHITE_QUEENSIDE : 0;
+        }
+        if ((gameBoard.getPieces(TeamColor.BLACK, PieceType.KING) & (1L << 60)) != 0) {
+            rooks = gameBoard.getPieces(TeamColor.BLACK, PieceType.ROOK);
+            castlingRights |= (rooks & (1L << 63)) != 0 ? BLACK_KINGSIDE : 0;
+            castlingRights |= (rooks & (1L << 56)) != 0 ? BLACK_QUEENSIDE : 0;
         }
     }
 
@@ -377,21 +457,41 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         gameBoard = board;
-        // Find and update king positions on the new board
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-                if (piece != null && piece.getPieceType() == PieceType.KING) {
-                    if (piece.getTeamColor() == TeamColor.WHITE) {
-                        whiteKingPosition = position;
-                    } else {
-                        blackKingPosition = position;
-                    }
-                }
-            }
-        }
-        resetHasBeenMoved();
+        resetCastlingRights();
+        enPassantSquare = NO_SQUARE;
+        status = null;
+        historySize = 0;
+        rekey();
+    }
+
+    /**
+     * Sets the castling rights and en passant square directly, for loading a
+     * position that records them
+     *
+     * @param castlingRights  castling rights bits, see {@link #WHITE_KINGSIDE}
+     * @param enPassantSquare square a pawn may capture onto en passant, or {@link #NO_SQUARE}
+     */
+    void setPositionState(int castlingRights, int enPassantSquare) {
+        this.castlingRights = castlingRights;
+        this.enPassantSquare = enPassantSquare;
+        status = null;
+        historySize = 0;
+        rekey();
+    }
+
+    /**
+     * @return an independent game in the same position and ply, without the
+     * undo history
+     */
+    public ChessGame copy() {
+        ChessGame copy = new ChessGame();
+        copy.gameBoard = gameBoard.copy();
+        copy.teamTurn = teamTurn;
+        copy.castlingRights = castlingRights;
+        copy.enPassantSquare = enPassantSquare;
+        copy.ply = ply;
+        copy.rekey();
+        return copy;
     }
 
     @Override
@@ -400,15 +500,8 @@ public class ChessGame {
         int result = 1;
         result = prime * result + ((gameBoard == null) ? 0 : gameBoard.hashCode());
         result = prime * result + ((teamTurn == null) ? 0 : teamTurn.hashCode());
-        result = prime * result + ((whiteKingPosition == null) ? 0 : whiteKingPosition.hashCode());
-        result = prime * result + (whiteKingMoved ? 1231 : 1237);
-        result = prime * result + ((blackKingPosition == null) ? 0 : blackKingPosition.hashCode());
-        result = prime * result + (blackKingMoved ? 1231 : 1237);
-        result = prime * result + (whiteRookLMoved ? 1231 : 1237);
-        result = prime * result + (whiteRookRMoved ? 1231 : 1237);
-        result = prime * result + (blackRookLMoved ? 1231 : 1237);
-        result = prime * result + (blackRookRMoved ? 1231 : 1237);
-        result = prime * result + (passantTurn ? 1231 : 1237);
+        result = prime * result + castlingRights;
+        result = prime * result + enPassantSquare;
         return result;
     }
 
@@ -434,39 +527,86 @@ public class ChessGame {
         if (teamTurn != other.teamTurn) {
             return false;
         }
-        if (whiteKingPosition == null) {
-            if (other.whiteKingPosition != null) {
-                return false;
-            }
-        } else if (!whiteKingPosition.equals(other.whiteKingPosition)) {
+        if (castlingRights != other.castlingRights) {
             return false;
         }
-        if (whiteKingMoved != other.whiteKingMoved) {
-            return false;
-        }
-        if (blackKingPosition == null) {
-            if (other.blackKingPosition != null) {
-                return false;
+        return enPassantSquare == other.enPassantSquare;
+    }
+
+    /**
+     * Serializes games field by field as usual. Games saved before castling
+     * rights were stored kept whether each king and rook had moved instead,
+     * so for those the rights are worked out from that and the board.
+     */
+    static class Adapter implements TypeAdapterFactory {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != ChessGame.class) {
+                return null;
             }
-        } else if (!blackKingPosition.equals(other.blackKingPosition)) {
-            return false;
+            TypeAdapter<ChessGame> delegate = gson.getDelegateAdapter(this, TypeToken.get(ChessGame.class));
+            TypeAdapter<JsonElement> elements = gson.getAdapter(JsonElement.class);
+            return (TypeAdapter<T>) new TypeAdapter<ChessGame>() {
+                @Override
+                public void write(JsonWriter out, ChessGame game) throws IOException {
+                    delegate.write(out, game);
+                }
+
+                @Override
+                public ChessGame read(JsonReader in) throws IOException {
+                    JsonElement tree = elements.read(in);
+                    ChessGame game = delegate.fromJsonTree(tree);
+                    if (game == null) {
+                        return null;
+                    }
+                    if (tree.isJsonObject() && !tree.getAsJsonObject().has("castlingRights")) {
+                        game.loadLegacyState(tree.getAsJsonObject());
+                    } else {
+                        game.rekey();
+                    }
+                    return game;
+                }
+            };
         }
-        if (blackKingMoved != other.blackKingMoved) {
-            return false;
+    }
+
+    /**
+     * Sets castling rights from a game saved before they were stored. Castles
+     * are allowed where the king and rook are on their home squares and the
+     * saved game doesn't say either has moved. The old format didn't record
+     * where an en passant capture could be made, so none is allowed.
+     */
+    private void loadLegacyState(JsonObject legacy) {
+        resetCastlingRights();
+        if (legacyFlag(legacy, "whiteKingMoved")) {
+            castlingRights &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
         }
-        if (whiteRookLMoved != other.whiteRookLMoved) {
-            return false;
+        if (legacyFlag(legacy, "blackKingMoved")) {
+            castlingRights &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
         }
-        if (whiteRookRMoved != other.whiteRookRMoved) {
-            return false;
+        // L and R were the rooks starting in columns a and h
+        if (legacyFlag(legacy, "whiteRookLMoved")) {
+            castlingRights &= ~WHITE_QUEENSIDE;
         }
-        if (blackRookLMoved != other.blackRookLMoved) {
-            return false;
+        if (legacyFlag(legacy, "whiteRookRMoved")) {
+            castlingRights &= ~WHITE_KINGSIDE;
         }
-        if (blackRookRMoved != other.blackRookRMoved) {
-            return false;
+        if (legacyFlag(legacy, "blackRookLMoved")) {
+            castlingRights &= ~BLACK_QUEENSIDE;
         }
-        return passantTurn == other.passantTurn;
+        if (legacyFlag(legacy, "blackRookRMoved")) {
+            castlingRights &= ~BLACK_KINGSIDE;
+        }
+        enPassantSquare = NO_SQUARE;
+        status = null;
+        historySize = 0;
+        rekey();
+    }
+
+    private static boolean legacyFlag(JsonObject legacy, String name) {
+        JsonElement flag = legacy.get(name);
+        return flag != null && flag.isJsonPrimitive() && flag.getAsBoolean();
     }
 
     /**
@@ -476,4 +616,14 @@ public class ChessGame {
         WHITE,
         BLACK
     }
+
+    /**
+     * Enum identifying the state of the game for the team to move
+     */
+    public enum GameStatus {
+        IN_PROGRESS,
+        CHECK,
+        CHECKMATE,
+        STALEMATE
+    }
 }
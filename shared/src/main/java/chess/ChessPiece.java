@@ -1,5 +1,12 @@
 package chess;
 
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Objects;
@@ -7,12 +14,27 @@ import java.util.Objects;
 /**
  * Represents a single chess piece
  * <p>
+ * Pieces are immutable, so each of the twelve colored kinds exists once,
+ * shared through {@link #of(ChessGame.TeamColor, PieceType)}, and Gson hands
+ * out the same shared instances when reading pieces.
+ * <p>
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessPiece.Adapter.class)
 public class ChessPiece {
+    private static final PieceType[] TYPES = PieceType.values();
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final ChessPiece[] PIECES = new ChessPiece[COLORS.length * TYPES.length];
+
+    static {
+        for (int i = 0; i < PIECES.length; i++) {
+            PIECES[i] = new ChessPiece(COLORS[i / TYPES.length], TYPES[i % TYPES.length]);
+        }
+    }
+
     private final ChessGame.TeamColor color;
-    private PieceType type;
+    private final PieceType type;
 
 
     public ChessPiece(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
@@ -20,6 +42,17 @@ public class ChessPiece {
         this.color = pieceColor;
     }
 
+    /**
+     * Gets the shared instance for a piece
+     *
+     * @param pieceColor the team the piece belongs to
+     * @param type       the type of piece
+     * @return the piece
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, PieceType type) {
+        return PIECES[pieceColor.ordinal() * TYPES.length + type.ordinal()];
+    }
+
     /**
      * @return Which team this chess piece belongs to
      */
@@ -55,69 +88,33 @@ public class ChessPiece {
             return pawnMoves(board, myPosition);
         }
 
-        int[] directions = getDirections(piece.getPieceType());
-        for (int i = 0; i < directions.length; i += 2) {
-            int row = myPosition.getRow() + directions[i];
-            int col = myPosition.getColumn() + directions[i + 1];
-            ChessGame.TeamColor color = piece.getTeamColor();
-            PieceType type = piece.getPieceType();
-
-            ChessPosition newPosition = new ChessPosition(row, col);
-            if (!ChessBoard.isValidPosition(newPosition)) {
-                continue;
-            }
-
-            ChessPiece newPiece = board.getPiece(newPosition);
-            if (newPiece != null && newPiece.getTeamColor() == color) {
-                continue;
-            }
-
-            moves.add(new ChessMove(myPosition, newPosition, null));
-
-            // Handle special cases for pieces that can move multiple squares
-            if (type == PieceType.QUEEN || type == PieceType.BISHOP || type == PieceType.ROOK) {
-                while (newPiece == null) {
-                    row += directions[i];
-                    col += directions[i + 1];
-
-                    newPosition = new ChessPosition(row, col);
-                    if (!ChessBoard.isValidPosition(newPosition)) {
-                        break;
-                    }
-
-                    newPiece = board.getPiece(newPosition);
-                    if (newPiece != null && newPiece.getTeamColor() == color) {
-                        break;
-                    }
-
-                    moves.add(new ChessMove(myPosition, newPosition, null));
-                }
-            }
+        int square = ChessBoard.squareOf(myPosition);
+        long targets = attacks(piece.getPieceType(), square, board.getOccupancy())
+                & ~board.getOccupancy(piece.getTeamColor());
+        for (; targets != 0; targets &= targets - 1) {
+            moves.add(new ChessMove(myPosition, ChessBoard.positionOf(Long.numberOfTrailingZeros(targets)), null));
         }
 
         return moves;
     }
 
     /**
-     * Returns the directions a piece can move in based on its type
+     * Looks up the squares a piece attacks from the precomputed tables
      *
-     * @param pieceType The type of piece to get directions for
-     * @return An array of directions in the form of {row1, col1, row2, col2, ...}
+     * @param pieceType The type of piece, which may not be a pawn
+     * @param square    The bitboard square the piece is on
+     * @param occupied  Every occupied square on the board, used to stop sliders
+     * @return Bitboard of attacked squares, including ones holding friendly pieces
      */
-    private int[] getDirections(PieceType pieceType) {
-        switch (pieceType) {
-            case KING:
-            case QUEEN:
-                return new int[]{0, 1, 0, -1, 1, 0, 1, 1, 1, -1, -1, 0, -1, 1, -1, -1};
-            case BISHOP:
-                return new int[]{1, 1, 1, -1, -1, 1, -1, -1};
-            case KNIGHT:
-                return new int[]{2, 1, 2, -1, -2, 1, -2, -1, 1, 2, 1, -2, -1, 2, -1, -2};
-            case ROOK:
-                return new int[]{0, 1, 0, -1, 1, 0, -1, 0};
-            default:
-                return new int[0];
-        }
+    private static long attacks(PieceType pieceType, int square, long occupied) {
+        return switch (pieceType) {
+            case KING -> Attacks.king(square);
+            case QUEEN -> Attacks.queen(square, occupied);
+            case BISHOP -> Attacks.bishop(square, occupied);
+            case KNIGHT -> Attacks.knight(square);
+            case ROOK -> Attacks.rook(square, occupied);
+            case PAWN -> 0L;
+        };
     }
 
     /**
@@ -129,52 +126,46 @@ public class ChessPiece {
      */
     private Collection<ChessMove> pawnMoves(ChessBoard board, ChessPosition myPosition) {
         Collection<ChessMove> moves = new ArrayList<>();
-        ChessPiece piece = board.getPiece(myPosition);
-        ChessGame.TeamColor color = piece.getTeamColor();
-
-        int direction = color == ChessGame.TeamColor.WHITE ? 1 : -1;
-        int row = myPosition.getRow() + direction;
-        int col = myPosition.getColumn();
-        ChessPosition newPosition = new ChessPosition(row, col);
-
-        // Handle basic move forward
-        if (ChessBoard.isValidPosition(newPosition) && board.getPiece(newPosition) == null) {
-            if (row == 8 || row == 1) {
-                addPromotions(moves, myPosition, newPosition);
-            } else {
-                moves.add(new ChessMove(myPosition, newPosition, null));
-            }
-        }
+        ChessGame.TeamColor color = board.getPiece(myPosition).getTeamColor();
+        ChessGame.TeamColor enemy = color == ChessGame.TeamColor.WHITE
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        int square = ChessBoard.squareOf(myPosition);
+        long empty = ~board.getOccupancy();
+
+        // Handle basic and double moves forward
+        int forward = color == ChessGame.TeamColor.WHITE ? 8 : -8;
+        int single = square + forward;
+        if (single >= 0 && single < 64 && (empty & (1L << single)) != 0) {
+            addPawnMove(moves, myPosition, single);
 
-        // Handle double move forward
-        if ((color == ChessGame.TeamColor.WHITE && myPosition.getRow() == 2) ||
-                (color == ChessGame.TeamColor.BLACK && myPosition.getRow() == 7)) {
-            ChessPosition intermediatePosition = new ChessPosition(row, col);
-            newPosition = new ChessPosition(row + direction, col);
-            if (board.getPiece(intermediatePosition) == null && board.getPiece(newPosition) == null) {
-                row += direction;
-                newPosition = new ChessPosition(row, col);
-                moves.add(new ChessMove(myPosition, newPosition, null));
+            int startRow = color == ChessGame.TeamColor.WHITE ? 2 : 7;
+            int twice = single + forward;
+            if (myPosition.getRow() == startRow && (empty & (1L << twice)) != 0) {
+                addPawnMove(moves, myPosition, twice);
             }
         }
 
         // Handle diagonal moves when capturing
-        int[] directions = new int[]{1, -1};
-        for (int diagonal : directions) {
-            newPosition = new ChessPosition(myPosition.getRow() + direction, col + diagonal);
-            ChessPiece newPiece = board.getPiece(newPosition);
-            if (newPiece != null && newPiece.getTeamColor() != color) {
-                if (newPosition.getRow() == 8 || newPosition.getRow() == 1) {
-                    addPromotions(moves, myPosition, newPosition);
-                } else {
-                    moves.add(new ChessMove(myPosition, newPosition, null));
-                }
-            }
+        long captures = Attacks.pawn(color, square) & board.getOccupancy(enemy);
+        for (; captures != 0; captures &= captures - 1) {
+            addPawnMove(moves, myPosition, Long.numberOfTrailingZeros(captures));
         }
 
         return moves;
     }
 
+    /**
+     * Adds a pawn move, expanding it into every promotion on the last rank
+     */
+    private void addPawnMove(Collection<ChessMove> moves, ChessPosition from, int toSquare) {
+        ChessPosition to = ChessBoard.positionOf(toSquare);
+        if (to.getRow() == 8 || to.getRow() == 1) {
+            addPromotions(moves, from, to);
+        } else {
+            moves.add(new ChessMove(from, to, null));
+        }
+    }
+
     /**
      * Adds all possible promotions for a pawn to the list of possible moves
      *
@@ -191,6 +182,9 @@ public class ChessPiece {
 
     @Override
     public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
@@ -211,6 +205,49 @@ public class ChessPiece {
                 '}';
     }
 
+    /**
+     * Reads and writes pieces in the same shape as the default field
+     * serialization, but reads them back through {@link #of}
+     */
+    static class Adapter extends TypeAdapter<ChessPiece> {
+        @Override
+        public void write(JsonWriter out, ChessPiece piece) throws IOException {
+            if (piece == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("color").value(piece.color == null ? null : piece.color.name());
+            out.name("type").value(piece.type == null ? null : piece.type.name());
+            out.endObject();
+        }
+
+        @Override
+        public ChessPiece read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            ChessGame.TeamColor color = null;
+            PieceType type = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                } else if (name.equals("color")) {
+                    color = ChessGame.TeamColor.valueOf(in.nextString());
+                } else if (name.equals("type")) {
+                    type = PieceType.valueOf(in.nextString());
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+            return color == null || type == null ? new ChessPiece(color, type) : of(color, type);
+        }
+    }
+
     /**
      * The various different chess piece options
      */
@@ -0,0 +1,106 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+/**
+ * Reads positions written in Forsyth-Edwards Notation, such as the standard
+ * starting position {@code rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1}.
+ * The halfmove clock and fullmove number are optional and ignored.
+ */
+public final class Fen {
+    private Fen() {
+    }
+
+    /**
+     * Builds a game in the position described
+     *
+     * @param fen the position in Forsyth-Edwards Notation
+     * @return a game in that position with that team to move
+     * @throws IllegalArgumentException if the position can't be read
+     */
+    public static ChessGame parse(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("FEN needs at least four fields: " + fen);
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(parseBoard(fields[0]));
+        game.setTeamTurn(switch (fields[1]) {
+            case "w" -> TeamColor.WHITE;
+            case "b" -> TeamColor.BLACK;
+            default -> throw new IllegalArgumentException("Unknown side to move: " + fields[1]);
+        });
+        game.setPositionState(parseCastling(fields[2]), parseSquare(fields[3]));
+        return game;
+    }
+
+    private static ChessBoard parseBoard(String placement) {
+        ChessBoard board = new ChessBoard();
+        String[] ranks = placement.split("/");
+        if (ranks.length != 8) {
+            throw new IllegalArgumentException("FEN board needs eight ranks: " + placement);
+        }
+
+        for (int i = 0; i < ranks.length; i++) {
+            int row = 8 - i;
+            int col = 1;
+            for (char symbol : ranks[i].toCharArray()) {
+                if (Character.isDigit(symbol)) {
+                    col += symbol - '0';
+                    continue;
+                }
+                if (col > 8) {
+                    throw new IllegalArgumentException("FEN rank is too long: " + ranks[i]);
+                }
+                TeamColor color = Character.isUpperCase(symbol) ? TeamColor.WHITE : TeamColor.BLACK;
+                board.addPiece(ChessPosition.of(row, col++), ChessPiece.of(color, pieceType(symbol)));
+            }
+            if (col != 9) {
+                throw new IllegalArgumentException("FEN rank must cover eight squares: " + ranks[i]);
+            }
+        }
+        return board;
+    }
+
+    private static PieceType pieceType(char symbol) {
+        return switch (Character.toLowerCase(symbol)) {
+            case 'k' -> PieceType.KING;
+            case 'q' -> PieceType.QUEEN;
+            case 'b' -> PieceType.BISHOP;
+            case 'n' -> PieceType.KNIGHT;
+            case 'r' -> PieceType.ROOK;
+            case 'p' -> PieceType.PAWN;
+            default -> throw new IllegalArgumentException("Unknown piece: " + symbol);
+        };
+    }
+
+    private static int parseCastling(String castling) {
+        int rights = 0;
+        if (castling.equals("-")) {
+            return rights;
+        }
+        for (char symbol : castling.toCharArray()) {
+            rights |= switch (symbol) {
+                case 'K' -> ChessGame.WHITE_KINGSIDE;
+                case 'Q' -> ChessGame.WHITE_QUEENSIDE;
+                case 'k' -> ChessGame.BLACK_KINGSIDE;
+                case 'q' -> ChessGame.BLACK_QUEENSIDE;
+                default -> throw new IllegalArgumentException("Unknown castling right: " + symbol);
+            };
+        }
+        return rights;
+    }
+
+    private static int parseSquare(String square) {
+        if (square.equals("-")) {
+            return ChessGame.NO_SQUARE;
+        }
+        if (square.length() != 2 || square.charAt(0) < 'a' || square.charAt(0) > 'h'
+                || square.charAt(1) < '1' || square.charAt(1) > '8') {
+            throw new IllegalArgumentException("Unknown en passant square: " + square);
+        }
+        return (square.charAt(1) - '1') * 8 + square.charAt(0) - 'a';
+    }
+}
@@ -0,0 +1,120 @@
+package chess;
+
+import chess.ChessPiece.PieceType;
+
+/**
+ * Packs a chess move into a single int so move generation can run without
+ * allocating a {@link ChessMove} for every candidate.
+ * <p>
+ * Bits 0-5 hold the start square and bits 6-11 the end square, using the
+ * bitboard numbering from {@link ChessBoard#squareOf(ChessPosition)}. Bits
+ * 12-14 hold the promotion piece as its ordinal plus one, or zero for none.
+ * The flag bits above those describe side effects the generator already
+ * worked out, so applying the move never has to rediscover them.
+ */
+public final class Move {
+    /**
+     * Value that never encodes a real move, since the start and end squares match
+     */
+    public static final int NONE = 0;
+
+    /**
+     * Flag for a pawn capturing en passant, which also removes the passed pawn
+     */
+    public static final int EN_PASSANT = 1 << 15;
+
+    /**
+     * Flag for a king castling, which also moves the rook
+     */
+    public static final int CASTLING = 1 << 16;
+
+    /**
+     * Flag for a pawn moving two squares, which opens an en passant capture
+     */
+    public static final int DOUBLE_PUSH = 1 << 17;
+
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int TO_SHIFT = 6;
+    private static final int PROMOTION_SHIFT = 12;
+    private static final int PROMOTION_MASK = 0x7;
+    private static final int IDENTITY_MASK = (1 << 15) - 1;
+    private static final PieceType[] TYPES = PieceType.values();
+
+    private Move() {
+    }
+
+    /**
+     * Encodes a move
+     *
+     * @param from      start square index from 0 to 63
+     * @param to        end square index from 0 to 63
+     * @param promotion piece a pawn promotes to, or null
+     * @param flags     any of {@link #EN_PASSANT}, {@link #CASTLING} and {@link #DOUBLE_PUSH}
+     * @return the packed move
+     */
+    public static int encode(int from, int to, PieceType promotion, int flags) {
+        int promotionBits = promotion == null ? 0 : promotion.ordinal() + 1;
+        return from | (to << TO_SHIFT) | (promotionBits << PROMOTION_SHIFT) | flags;
+    }
+
+    /**
+     * @return start square index of the move
+     */
+    public static int from(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    /**
+     * @return end square index of the move
+     */
+    public static int to(int move) {
+        return (move >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    /**
+     * @return piece a pawn promotes to, or null if the move is not a promotion
+     */
+    public static PieceType promotion(int move) {
+        int promotionBits = (move >>> PROMOTION_SHIFT) & PROMOTION_MASK;
+        return promotionBits == 0 ? null : TYPES[promotionBits - 1];
+    }
+
+    /**
+     * @return true if the move carries the given flag
+     */
+    public static boolean hasFlag(int move, int flag) {
+        return (move & flag) != 0;
+    }
+
+    /**
+     * Compares the squares and promotion of two moves, ignoring flags, which is
+     * how a move decoded from a {@link ChessMove} is matched to a generated one
+     *
+     * @return true if both encode the same move
+     */
+    public static boolean sameMove(int a, int b) {
+        return (a & IDENTITY_MASK) == (b & IDENTITY_MASK);
+    }
+
+    /**
+     * Encodes a ChessMove. The result has no flags set, since those depend on
+     * the position the move is played in.
+     *
+     * @param move the move to encode
+     * @return the packed move
+     */
+    public static int fromChessMove(ChessMove move) {
+        return encode(ChessBoard.squareOf(move.getStartPosition()), ChessBoard.squareOf(move.getEndPosition()),
+                move.getPromotionPiece(), 0);
+    }
+
+    /**
+     * Decodes a packed move into a ChessMove
+     *
+     * @param move the packed move
+     * @return the matching ChessMove
+     */
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(ChessBoard.positionOf(from(move)), ChessBoard.positionOf(to(move)), promotion(move));
+    }
+}
@@ -0,0 +1,256 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+/**
+ * Generates strictly legal moves straight from a board's bitboards.
+ * <p>
+ * Before any piece is looked at, the generator works out which enemy pieces
+ * give check and which friendly pieces are pinned to their king. A single check
+ * restricts every non-king move to capturing the checker or blocking its ray, a
+ * double check leaves only king moves, and a pinned piece may only move along
+ * the line through its king and pinner. King moves are tested against the
+ * enemy's attacks with the king lifted off the board. Only en passant, which
+ * removes two pieces from one rank, needs a full attack probe of its own.
+ * <p>
+ * The board is only read, never changed, so any number of threads may
+ * generate moves for the same position at once.
+ */
+final class MoveGenerator {
+    private static final PieceType[] PROMOTIONS = {PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP,
+            PieceType.KNIGHT};
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Adds every legal move for a team's pieces on the given squares
+     *
+     * @param board           The board to generate moves on
+     * @param us              The team whose pieces are moving
+     * @param castlingRights  Castling rights bits, see {@link ChessGame#WHITE_KINGSIDE}
+     * @param enPassantSquare Square a pawn may capture onto en passant, or
+     *                        {@link ChessGame#NO_SQUARE}
+     * @param fromMask        Bitboard of the squares to generate moves from
+     * @param moves           List the legal moves are added to, encoded with {@link Move}
+     */
+    static void legalMoves(ChessBoard board, TeamColor us, int castlingRights, int enPassantSquare,
+                           long fromMask, MoveList moves) {
+        generate(board, us, castlingRights, enPassantSquare, fromMask, false, moves);
+    }
+
+    /**
+     * Determines if a team has any legal move at all, stopping as soon as the
+     * first one is found
+     *
+     * @param board           The board to generate moves on
+     * @param us              The team whose pieces are moving
+     * @param castlingRights  Castling rights bits, see {@link ChessGame#WHITE_KINGSIDE}
+     * @param enPassantSquare Square a pawn may capture onto en passant, or
+     *                        {@link ChessGame#NO_SQUARE}
+     * @return true if at least one legal move exists
+     */
+    static boolean hasLegalMove(ChessBoard board, TeamColor us, int castlingRights, int enPassantSquare) {
+        // A legal move is found within the first piece or two, so a small buffer is plenty
+        MoveList moves = new MoveList(32);
+        generate(board, us, castlingRights, enPassantSquare, ~0L, true, moves);
+        return !moves.isEmpty();
+    }
+
+    private static void generate(ChessBoard board, TeamColor us, int castlingRights, int enPassantSquare,
+                                 long fromMask, boolean firstOnly, MoveList moves) {
+        TeamColor them = opponent(us);
+        long own = board.getOccupancy(us);
+        long occupied = board.getOccupancy();
+        long king = board.getPieces(us, PieceType.KING);
+        int kingSquare = king == 0 ? ChessGame.NO_SQUARE : Long.numberOfTrailingZeros(king);
+
+        // Squares a non-king move must land on to deal with any check
+        long checkers = 0;
+        long pinned = 0;
+        long evasions = ~0L;
+        if (kingSquare != ChessGame.NO_SQUARE) {
+            checkers = board.attackersOf(kingSquare, them, occupied);
+            pinned = pinnedPieces(board, us, kingSquare);
+            if (Long.bitCount(checkers) > 1) {
+                evasions = 0;
+            } else if (checkers != 0) {
+                evasions = checkers | Attacks.between(kingSquare, Long.numberOfTrailingZeros(checkers));
+            }
+        }
+
+        // The king goes first since it is the only piece that can answer a double check
+        if ((king & fromMask) != 0) {
+            kingMoves(board, us, kingSquare, moves);
+            if (checkers == 0) {
+                castlingMoves(board, us, kingSquare, castlingRights, moves);
+            }
+        }
+
+        for (long pieces = own & ~king & fromMask; pieces != 0; pieces &= pieces - 1) {
+            if (firstOnly && !moves.isEmpty()) {
+                return;
+            }
+
+            int from = Long.numberOfTrailingZeros(pieces);
+            long allowed = evasions;
+            if ((pinned & (1L << from)) != 0) {
+                allowed &= Attacks.line(kingSquare, from);
+            }
+
+            PieceType type = ChessBoard.pieceFor(board.pieceAt(from)).getPieceType();
+            if (type == PieceType.PAWN) {
+                pawnMoves(board, us, from, allowed, kingSquare, enPassantSquare, moves);
+            } else {
+                addMoves(from, attacks(type, from, occupied) & ~own & allowed, moves);
+            }
+        }
+    }
+
+    /**
+     * Finds friendly pieces that are the only thing standing between their king
+     * and an enemy slider
+     */
+    private static long pinnedPieces(ChessBoard board, TeamColor us, int kingSquare) {
+        TeamColor them = opponent(us);
+        long queens = board.getPieces(them, PieceType.QUEEN);
+        long snipers = (Attacks.rook(kingSquare, 0L) & (board.getPieces(them, PieceType.ROOK) | queens))
+                | (Attacks.bishop(kingSquare, 0L) & (board.getPieces(them, PieceType.BISHOP) | queens));
+
+        long pinned = 0;
+        for (; snipers != 0; snipers &= snipers - 1) {
+            long blockers = Attacks.between(kingSquare, Long.numberOfTrailingZeros(snipers)) & board.getOccupancy();
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers & board.getOccupancy(us);
+            }
+        }
+        return pinned;
+    }
+
+    private static void pawnMoves(ChessBoard board, TeamColor us, int from, long allowed, int kingSquare,
+                                  int enPassantSquare, MoveList moves) {
+        long empty = ~board.getOccupancy();
+        int forward = us == TeamColor.WHITE ? 8 : -8;
+
+        // Handle basic and double moves forward
+        int single = from + forward;
+        if (single >= 0 && single < 64 && (empty & (1L << single)) != 0) {
+            if ((allowed & (1L << single)) != 0) {
+                addPawnMove(from, single, 0, moves);
+            }
+
+            int startRank = us == TeamColor.WHITE ? 1 : 6;
+            int twice = single + forward;
+            if (from / 8 == startRank && (empty & allowed & (1L << twice)) != 0) {
+                addMove(from, twice, null, Move.DOUBLE_PUSH, moves);
+            }
+        }
+
+        // Handle diagonal moves when capturing
+        long attacks = Attacks.pawn(us, from);
+        for (long captures = attacks & board.getOccupancy(opponent(us)) & allowed; captures != 0;
+             captures &= captures - 1) {
+            addPawnMove(from, Long.numberOfTrailingZeros(captures), 0, moves);
+        }
+
+        if (enPassantSquare != ChessGame.NO_SQUARE && (attacks & (1L << enPassantSquare)) != 0
+                && isLegalEnPassant(board, us, from, enPassantSquare, enPassantSquare - forward, kingSquare)) {
+            addMove(from, enPassantSquare, null, Move.EN_PASSANT, moves);
+        }
+    }
+
+    /**
+     * En passant empties two squares on the capturing pawn's rank, so it can
+     * expose the king along that rank even when neither pawn is pinned on its
+     * own. Check it by probing the king with the occupancy after the capture.
+     */
+    private static boolean isLegalEnPassant(ChessBoard board, TeamColor us, int from, int to, int captured,
+                                            int kingSquare) {
+        long capturedBit = 1L << captured;
+        if ((board.getPieces(opponent(us), PieceType.PAWN) & capturedBit) == 0) {
+            return false;
+        }
+        if (kingSquare == ChessGame.NO_SQUARE) {
+            return true;
+        }
+
+        long occupied = (board.getOccupancy() ^ (1L << from) ^ capturedBit) | (1L << to);
+        return (board.attackersOf(kingSquare, opponent(us), occupied) & ~capturedBit) == 0;
+    }
+
+    private static void kingMoves(ChessBoard board, TeamColor us, int kingSquare, MoveList moves) {
+        // Lift the king off the board so sliders checking it also cover the squares behind it
+        long occupied = board.getOccupancy() & ~(1L << kingSquare);
+        TeamColor them = opponent(us);
+        for (long targets = Attacks.king(kingSquare) & ~board.getOccupancy(us); targets != 0;
+             targets &= targets - 1) {
+            int to = Long.numberOfTrailingZeros(targets);
+            if (board.attackersOf(to, them, occupied) == 0) {
+                addMove(kingSquare, to, null, 0, moves);
+            }
+        }
+    }
+
+    private static void castlingMoves(ChessBoard board, TeamColor us, int kingSquare, int castlingRights,
+                                      MoveList moves) {
+        boolean white = us == TeamColor.WHITE;
+        int home = white ? 4 : 60;
+        int kingside = white ? ChessGame.WHITE_KINGSIDE : ChessGame.BLACK_KINGSIDE;
+        int queenside = white ? ChessGame.WHITE_QUEENSIDE : ChessGame.BLACK_QUEENSIDE;
+        if (kingSquare != home) {
+            return;
+        }
+
+        long rooks = board.getPieces(us, PieceType.ROOK);
+        long occupied = board.getOccupancy();
+        TeamColor them = opponent(us);
+        if ((castlingRights & kingside) != 0 && (rooks & (1L << (home + 3))) != 0
+                && (occupied & (0b11L << (home + 1))) == 0
+                && board.attackersOf(home + 1, them, occupied) == 0
+                && board.attackersOf(home + 2, them, occupied) == 0) {
+            addMove(home, home + 2, null, Move.CASTLING, moves);
+        }
+        if ((castlingRights & queenside) != 0 && (rooks & (1L << (home - 4))) != 0
+                && (occupied & (0b111L << (home - 3))) == 0
+                && board.attackersOf(home - 1, them, occupied) == 0
+                && board.attackersOf(home - 2, them, occupied) == 0) {
+            addMove(home, home - 2, null, Move.CASTLING, moves);
+        }
+    }
+
+    private static long attacks(PieceType type, int square, long occupied) {
+        return switch (type) {
+            case QUEEN -> Attacks.queen(square, occupied);
+            case BISHOP -> Attacks.bishop(square, occupied);
+            case KNIGHT -> Attacks.knight(square);
+            case ROOK -> Attacks.rook(square, occupied);
+            case KING -> Attacks.king(square);
+            case PAWN -> 0L;
+        };
+    }
+
+    private static void addMoves(int from, long targets, MoveList moves) {
+        for (; targets != 0; targets &= targets - 1) {
+            addMove(from, Long.numberOfTrailingZeros(targets), null, 0, moves);
+        }
+    }
+
+    private static void addPawnMove(int from, int to, int flags, MoveList moves) {
+        if (to >= 56 || to < 8) {
+            for (PieceType promotion : PROMOTIONS) {
+                addMove(from, to, promotion, flags, moves);
+            }
+        } else {
+            addMove(from, to, null, flags, moves);
+        }
+    }
+
+    private static void addMove(int from, int to, PieceType promotion, int flags, MoveList moves) {
+        moves.add(Move.encode(from, to, promotion, flags));
+    }
+
+    private static TeamColor opponent(TeamColor color) {
+        return color == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+    }
+}
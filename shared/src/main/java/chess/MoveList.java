@@ -0,0 +1,79 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * A reusable buffer of moves encoded with {@link Move}. Clearing the list keeps
+ * its backing array, so one list can be filled again and again while
+ * generating moves without creating garbage.
+ */
+public final class MoveList {
+    /**
+     * Enough room for every legal move in any reachable chess position
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private int[] moves;
+    private int size;
+
+    public MoveList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MoveList(int capacity) {
+        moves = new int[capacity];
+    }
+
+    /**
+     * Adds a move to the end of the list, growing it if a contrived board
+     * holds more moves than the capacity
+     *
+     * @param move the packed move
+     */
+    public void add(int move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, Math.max(8, moves.length * 2));
+        }
+        moves[size++] = move;
+    }
+
+    /**
+     * @return the packed move at the given index
+     */
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return moves[index];
+    }
+
+    /**
+     * Looks for a move with the same squares and promotion, ignoring flags
+     *
+     * @param move the packed move to look for, usually from {@link Move#fromChessMove}
+     * @return the matching move as stored in the list, or {@link Move#NONE}
+     */
+    public int find(int move) {
+        for (int i = 0; i < size; i++) {
+            if (Move.sameMove(moves[i], move)) {
+                return moves[i];
+            }
+        }
+        return Move.NONE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Empties the list while keeping its storage
+     */
+    public void clear() {
+        size = 0;
+    }
+}
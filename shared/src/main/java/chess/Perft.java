@@ -0,0 +1,255 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts every leaf of the legal move tree to a fixed depth, known as perft.
+ * The counts for well known positions are published, so matching them checks
+ * the move generator against every rule at once, and the time taken gives a
+ * nodes per second figure to watch for regressions.
+ * <p>
+ * The tree is walked with make and unmake on a single game, with one move list
+ * per ply. The root moves are split across threads, each on its own copy of
+ * the game.
+ * <p>
+ * Run it from the shared module with
+ * {@code mvn compile exec:java -Dexec.args="--depth 5"}, or see {@link #main}
+ * for the other options.
+ */
+public final class Perft {
+    /**
+     * Positions with published node counts, starting from depth 1
+     */
+    static final List<ReferencePosition> REFERENCE_POSITIONS = List.of(
+            new ReferencePosition("start",
+                    "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                    20, 400, 8902, 197281, 4865609, 119060324),
+            new ReferencePosition("kiwipete",
+                    "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    48, 2039, 97862, 4085603, 193690690),
+            new ReferencePosition("position3",
+                    "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    14, 191, 2812, 43238, 674624, 11030083),
+            new ReferencePosition("position4",
+                    "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    6, 264, 9467, 422333, 15833292),
+            new ReferencePosition("position5",
+                    "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                    44, 1486, 62379, 2103487, 89941194),
+            new ReferencePosition("position6",
+                    "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                    46, 2079, 89890, 3894594, 164075551)
+    );
+
+    /**
+     * Deepest reference count the suite runs by default, to keep a run short
+     */
+    private static final long DEFAULT_NODE_LIMIT = 5_000_000L;
+
+    private Perft() {
+    }
+
+    /**
+     * Counts the leaves of the move tree on a single thread. The game is
+     * left in the position it started in.
+     *
+     * @param game  the game to count from
+     * @param depth number of plies to look ahead
+     * @return number of leaf positions
+     */
+    public static long perft(ChessGame game, int depth) {
+        if (depth <= 0) {
+            return 1;
+        }
+        MoveList[] lists = new MoveList[depth + 1];
+        for (int i = 1; i <= depth; i++) {
+            lists[i] = new MoveList();
+        }
+        return count(game, depth, lists);
+    }
+
+    private static long count(ChessGame game, int depth, MoveList[] lists) {
+        MoveList moves = lists[depth];
+        game.legalMoves(moves);
+        if (depth == 1) {
+            return moves.size();
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            game.makeLegalMove(moves.get(i));
+            nodes += count(game, depth - 1, lists);
+            game.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Counts the leaves below each root move, spreading the root moves over
+     * several threads
+     *
+     * @param game    the game to count from, which is not changed
+     * @param depth   number of plies to look ahead, at least 1
+     * @param threads number of threads to count with
+     * @return leaf count per root move, keyed like {@code e2e4} or {@code a7a8q}
+     */
+    public static Map<String, Long> divide(ChessGame game, int depth, int threads) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Divide needs a depth of at least 1");
+        }
+        MoveList roots = new MoveList();
+        game.legalMoves(roots);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<Long>> counts = new ArrayList<>(roots.size());
+            for (int i = 0; i < roots.size(); i++) {
+                int move = roots.get(i);
+                ChessGame branch = game.copy();
+                counts.add(executor.submit(() -> {
+                    branch.makeLegalMove(move);
+                    return perft(branch, depth - 1);
+                }));
+            }
+
+            Map<String, Long> divided = new LinkedHashMap<>();
+            for (int i = 0; i < roots.size(); i++) {
+                divided.put(notation(roots.get(i)), counts.get(i).get());
+            }
+            return divided;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Perft was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Perft failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Counts the leaves of the move tree, split over several threads at the root
+     *
+     * @param game    the game to count from, which is not changed
+     * @param depth   number of plies to look ahead
+     * @param threads number of threads to count with
+     * @return number of leaf positions
+     */
+    public static long perft(ChessGame game, int depth, int threads) {
+        if (depth <= 1 || threads <= 1) {
+            return perft(game, depth);
+        }
+        long nodes = 0;
+        for (long count : divide(game, depth, threads).values()) {
+            nodes += count;
+        }
+        return nodes;
+    }
+
+    /**
+     * Writes a move in coordinate notation, such as {@code e2e4} or {@code a7a8q}
+     */
+    private static String notation(int move) {
+        String squares = ChessBoard.positionOf(Move.from(move)).toString()
+                + ChessBoard.positionOf(Move.to(move));
+        ChessPiece.PieceType promotion = Move.promotion(move);
+        return promotion == null ? squares : squares + switch (promotion) {
+            case QUEEN -> "q";
+            case ROOK -> "r";
+            case BISHOP -> "b";
+            case KNIGHT -> "n";
+            default -> "";
+        };
+    }
+
+    /**
+     * Runs perft from the command line. With no position it runs the reference
+     * suite and exits with status 1 if any count is wrong.
+     * <ul>
+     * <li>{@code --depth N} depth to count to, by default each reference
+     * position's deepest count under five million nodes</li>
+     * <li>{@code --fen "..."} count from this position instead of the suite</li>
+     * <li>{@code --divide} print the count below each root move</li>
+     * <li>{@code --threads N} threads to split the root over, by default one per processor</li>
+     * </ul>
+     */
+    public static void main(String[] args) {
+        int depth = 0;
+        String fen = null;
+        boolean divide = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--depth" -> depth = Integer.parseInt(args[++i]);
+                case "--fen" -> fen = args[++i];
+                case "--divide" -> divide = true;
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                default -> {
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+
+        if (fen != null) {
+            run("custom", Fen.parse(fen), Math.max(depth, 1), -1, divide, threads);
+            return;
+        }
+
+        boolean passed = true;
+        for (ReferencePosition position : REFERENCE_POSITIONS) {
+            int positionDepth = depth > 0 ? Math.min(depth, position.nodes().length)
+                    : position.deepestUnder(DEFAULT_NODE_LIMIT);
+            long expected = position.nodes()[positionDepth - 1];
+            passed &= run(position.name(), Fen.parse(position.fen()), positionDepth, expected, divide, threads);
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean run(String name, ChessGame game, int depth, long expected, boolean divide,
+                               int threads) {
+        long start = System.nanoTime();
+        long nodes;
+        if (divide) {
+            nodes = 0;
+            for (Map.Entry<String, Long> entry : divide(game, depth, threads).entrySet()) {
+                System.out.printf("  %s: %d%n", entry.getKey(), entry.getValue());
+                nodes += entry.getValue();
+            }
+        } else {
+            nodes = perft(game, depth, threads);
+        }
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+        boolean passed = expected < 0 || nodes == expected;
+        String result = expected < 0 ? "" : passed ? "ok" : "FAILED, expected " + expected;
+        System.out.printf("%-10s depth %d  %,15d nodes  %,8d ms  %,12d nodes/s  %s%n",
+                name, depth, nodes, millis, nodes * 1000 / millis, result);
+        return passed;
+    }
+
+    /**
+     * A position in Forsyth-Edwards Notation with its node count at each depth
+     */
+    record ReferencePosition(String name, String fen, long... nodes) {
+        /**
+         * @return the deepest depth whose count is at most the limit, or 1
+         */
+        int deepestUnder(long limit) {
+            int depth = 1;
+            while (depth < nodes.length && nodes[depth] <= limit) {
+                depth++;
+            }
+            return depth;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package chess;
+
+import chess.ChessGame.TeamColor;
+import chess.ChessPiece.PieceType;
+
+/**
+ * Random keys for Zobrist hashing a position, see {@link ChessGame#getZobristKey()}.
+ * <p>
+ * A position's key is the XOR of one key per piece on its square, a key when
+ * black is to move, a key per castling right still held, and a key for the en
+ * passant file. The en passant key only counts when a pawn can actually make
+ * the capture, so positions that play out the same hash the same. Since XOR
+ * undoes itself, a move updates the key by toggling just the keys it changes.
+ * <p>
+ * The keys come from a fixed seed so a position hashes the same in every run.
+ */
+final class Zobrist {
+    private static final long[][] PIECES = new long[ChessBoard.PIECE_KINDS][64];
+    private static final long[] CASTLING = new long[ChessGame.ALL_CASTLING + 1];
+    private static final long[] EN_PASSANT_FILES = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    private static long seed = 0x2545F4914F6CDD1DL;
+
+    static {
+        for (long[] squares : PIECES) {
+            for (int square = 0; square < squares.length; square++) {
+                squares[square] = nextKey();
+            }
+        }
+
+        // Each castling right gets its own key, and a set of rights is the XOR of its members
+        long[] rights = {nextKey(), nextKey(), nextKey(), nextKey()};
+        for (int set = 0; set < CASTLING.length; set++) {
+            for (int bit = 0; bit < rights.length; bit++) {
+                if ((set & (1 << bit)) != 0) {
+                    CASTLING[set] ^= rights[bit];
+                }
+            }
+        }
+
+        for (int file = 0; file < EN_PASSANT_FILES.length; file++) {
+            EN_PASSANT_FILES[file] = nextKey();
+        }
+        BLACK_TO_MOVE = nextKey();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Computes a position's key from scratch
+     *
+     * @param board           the pieces on the board
+     * @param toMove          the team whose turn it is
+     * @param castlingRights  castling rights bits, see {@link ChessGame#WHITE_KINGSIDE}
+     * @param enPassantSquare square a pawn may capture onto en passant, or {@link ChessGame#NO_SQUARE}
+     * @return the key
+     */
+    static long keyOf(ChessBoard board, TeamColor toMove, int castlingRights, int enPassantSquare) {
+        long key = 0;
+        for (int square = 0; square < 64; square++) {
+            int index = board.pieceAt(square);
+            if (index >= 0) {
+                key ^= piece(index, square);
+            }
+        }
+        return key ^ sideToMove(toMove) ^ castling(castlingRights) ^ enPassant(board, toMove, enPassantSquare);
+    }
+
+    /**
+     * @return key for a piece, by its bitboard index, on a square
+     */
+    static long piece(int index, int square) {
+        return PIECES[index][square];
+    }
+
+    /**
+     * @return key for the team to move, which is zero for white
+     */
+    static long sideToMove(TeamColor toMove) {
+        return toMove == TeamColor.BLACK ? BLACK_TO_MOVE : 0L;
+    }
+
+    /**
+     * @return key for a set of castling rights bits
+     */
+    static long castling(int castlingRights) {
+        return CASTLING[castlingRights];
+    }
+
+    /**
+     * @return key for the en passant file, or zero if no pawn of the team to
+     * move stands next to the passed pawn
+     */
+    static long enPassant(ChessBoard board, TeamColor toMove, int enPassantSquare) {
+        if (enPassantSquare == ChessGame.NO_SQUARE) {
+            return 0L;
+        }
+        TeamColor other = toMove == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
+        if ((Attacks.pawn(other, enPassantSquare) & board.getPieces(toMove, PieceType.PAWN)) == 0) {
+            return 0L;
+        }
+        return EN_PASSANT_FILES[enPassantSquare % 8];
+    }
+
+    /**
+     * SplitMix64, which spreads a simple counter into well mixed 64-bit keys
+     */
+    private static long nextKey() {
+        seed += 0x9E3779B97F4A7C15L;
+        long z = seed;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -2,6 +2,6 @@ package model;
 
 import chess.ChessGame;
 
-public record GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game) {
+public record GameData(long gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game) {
 
 }
@@ -1,5 +1,5 @@
 package model.requests;
 
-public record JoinGameRequest(String authToken, String playerColor, int gameID) {
+public record JoinGameRequest(String authToken, String playerColor, long gameID) {
 
 }
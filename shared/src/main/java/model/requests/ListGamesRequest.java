@@ -1,5 +1,12 @@
 package model.requests;
 
-public record ListGamesRequest(String authToken) {
-
+/**
+ * Lists games, a page at a time if limit is set. Pass the previous result's
+ * nextCursor as cursor to get the page after it. openSeats keeps only games
+ * with a color still free, and player only games the named user plays in.
+ */
+public record ListGamesRequest(String authToken, Long cursor, Integer limit, Boolean openSeats, String player) {
+    public ListGamesRequest(String authToken) {
+        this(authToken, null, null, null, null);
+    }
 }
@@ -1,5 +1,5 @@
 package model.results;
 
-public record CreateGameResult(Integer gameID, String message) {
+public record CreateGameResult(Long gameID, String message) {
 
 }
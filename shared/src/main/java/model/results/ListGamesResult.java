@@ -4,6 +4,12 @@ import model.GameData;
 
 import java.util.Collection;
 
-public record ListGamesResult(Collection<GameData> games, String message) {
-
+/**
+ * The games listed carry their IDs, names and players, but not the game
+ * itself. nextCursor is set when there may be another page.
+ */
+public record ListGamesResult(Collection<GameData> games, String message, Long nextCursor) {
+    public ListGamesResult(Collection<GameData> games, String message) {
+        this(games, message, null);
+    }
 }
@@ -0,0 +1,18 @@
+package websocket.commands;
+
+/**
+ * Connects to a game. With moveDeltas set, moves are sent as MOVE_APPLIED
+ * rather than as a LOAD_GAME of the whole game.
+ */
+public class ConnectCommand extends UserGameCommand {
+    private boolean moveDeltas;
+
+    public ConnectCommand(String authToken, Long gameID, boolean moveDeltas) {
+        super(CommandType.CONNECT, authToken, gameID);
+        this.moveDeltas = moveDeltas;
+    }
+
+    public boolean wantsMoveDeltas() {
+        return moveDeltas;
+    }
+}
@@ -1,16 +1,32 @@
 package websocket.commands;
 
 import chess.ChessMove;
+import chess.Move;
 
 public class MoveCommand extends UserGameCommand {
     private ChessMove move;
 
-    public MoveCommand(String authToken, Integer gameID, ChessMove move) {
+    public MoveCommand(String authToken, Long gameID, ChessMove move) {
         super(CommandType.MAKE_MOVE, authToken, gameID);
         this.move = move;
     }
 
+    /**
+     * Builds the command from a move encoded by {@link Move}, the move is
+     * still sent as a ChessMove
+     */
+    public MoveCommand(String authToken, Long gameID, int move) {
+        this(authToken, gameID, Move.toChessMove(move));
+    }
+
     public ChessMove getMove() {
         return move;
     }
+
+    /**
+     * @return the move encoded by {@link Move}, without flags
+     */
+    public int getEncodedMove() {
+        return Move.fromChessMove(move);
+    }
 }
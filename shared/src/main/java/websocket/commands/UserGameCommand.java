@@ -14,9 +14,9 @@ public class UserGameCommand {
 
     private final String authToken;
 
-    private final Integer gameID;
+    private final Long gameID;
 
-    public UserGameCommand(CommandType commandType, String authToken, Integer gameID) {
+    public UserGameCommand(CommandType commandType, String authToken, Long gameID) {
         this.commandType = commandType;
         this.authToken = authToken;
         this.gameID = gameID;
@@ -26,7 +26,8 @@ public class UserGameCommand {
         CONNECT,
         MAKE_MOVE,
         LEAVE,
-        RESIGN
+        RESIGN,
+        RELOAD
     }
 
     public CommandType getCommandType() {
@@ -37,7 +38,7 @@ public class UserGameCommand {
         return authToken;
     }
 
-    public Integer getGameID() {
+    public Long getGameID() {
         return gameID;
     }
 
@@ -0,0 +1,32 @@
+package websocket.messages;
+
+import chess.ChessGame.GameStatus;
+import chess.Move;
+
+/**
+ * Sent in place of LOAD_GAME after a move, to clients that asked for it when
+ * connecting. The client makes the move on its own copy of the game, then
+ * checks it reached ply and zobristKey. If it didn't, its copy has drifted
+ * and it asks for the whole game again.
+ */
+public class MoveAppliedMessage extends ServerMessage {
+    /**
+     * The move, encoded by {@link Move}
+     */
+    public int move;
+    public GameStatus status;
+
+    /**
+     * The game's ply and Zobrist key once the move is made
+     */
+    public int ply;
+    public long zobristKey;
+
+    public MoveAppliedMessage(ServerMessageType type, int move, GameStatus status, int ply, long zobristKey) {
+        super(type);
+        this.move = move;
+        this.status = status;
+        this.ply = ply;
+        this.zobristKey = zobristKey;
+    }
+}
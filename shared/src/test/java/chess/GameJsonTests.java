@@ -0,0 +1,71 @@
+package chess;
+
+import com.google.gson.Gson;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class GameJsonTests {
+    /**
+     * 1. e4 e5 2. Ke2 Nf6 as saved before boards were bitboards
+     */
+    private static final String LEGACY_GAME = "{\"gameBoard\":{\"board\":["
+            + "[{\"color\":\"WHITE\",\"type\":\"ROOK\"},{\"color\":\"WHITE\",\"type\":\"KNIGHT\"},"
+            + "{\"color\":\"WHITE\",\"type\":\"BISHOP\"},{\"color\":\"WHITE\",\"type\":\"QUEEN\"},null,"
+            + "{\"color\":\"WHITE\",\"type\":\"BISHOP\"},{\"color\":\"WHITE\",\"type\":\"KNIGHT\"},"
+            + "{\"color\":\"WHITE\",\"type\":\"ROOK\"}],"
+            + "[{\"color\":\"WHITE\",\"type\":\"PAWN\"},{\"color\":\"WHITE\",\"type\":\"PAWN\"},"
+            + "{\"color\":\"WHITE\",\"type\":\"PAWN\"},{\"color\":\"WHITE\",\"type\":\"PAWN\"},"
+            + "{\"color\":\"WHITE\",\"type\":\"KING\"},{\"color\":\"WHITE\",\"type\":\"PAWN\"},"
+            + "{\"color\":\"WHITE\",\"type\":\"PAWN\"},{\"color\":\"WHITE\",\"type\":\"PAWN\"}],"
+            + "[null,null,null,null,null,null,null,null],"
+            + "[null,null,null,null,{\"color\":\"WHITE\",\"type\":\"PAWN\"},null,null,null],"
+            + "[null,null,null,null,{\"color\":\"BLACK\",\"type\":\"PAWN\"},null,null,null],"
+            + "[null,null,null,null,null,{\"color\":\"BLACK\",\"type\":\"KNIGHT\"},null,null],"
+            + "[{\"color\":\"BLACK\",\"type\":\"PAWN\"},{\"color\":\"BLACK\",\"type\":\"PAWN\"},"
+            + "{\"color\":\"BLACK\",\"type\":\"PAWN\"},{\"color\":\"BLACK\",\"type\":\"PAWN\"},null,"
+            + "{\"color\":\"BLACK\",\"type\":\"PAWN\"},{\"color\":\"BLACK\",\"type\":\"PAWN\"},"
+            + "{\"color\":\"BLACK\",\"type\":\"PAWN\"}],"
+            + "[{\"color\":\"BLACK\",\"type\":\"ROOK\"},{\"color\":\"BLACK\",\"type\":\"KNIGHT\"},"
+            + "{\"color\":\"BLACK\",\"type\":\"BISHOP\"},{\"color\":\"BLACK\",\"type\":\"QUEEN\"},"
+            + "{\"color\":\"BLACK\",\"type\":\"KING\"},{\"color\":\"BLACK\",\"type\":\"BISHOP\"},null,"
+            + "{\"color\":\"BLACK\",\"type\":\"ROOK\"}]]},"
+            + "\"teamTurn\":\"WHITE\",\"whiteKingPosition\":{\"row\":2,\"col\":5},\"whiteKingMoved\":true,"
+            + "\"blackKingPosition\":{\"row\":8,\"col\":5},\"blackKingMoved\":false,\"whiteRookLMoved\":false,"
+            + "\"whiteRookRMoved\":false,\"blackRookLMoved\":false,\"blackRookRMoved\":false,\"passantTurn\":false}";
+
+    private final Gson gson = new Gson();
+
+    @Test
+    public void readsLegacyGame() {
+        ChessGame game = gson.fromJson(LEGACY_GAME, ChessGame.class);
+        ChessGame expected = Fen.parse("rnbqkb1r/pppp1ppp/5n2/4p3/4P3/8/PPPPKPPP/RNBQ1BNR w kq - 2 3");
+
+        Assertions.assertEquals(expected, game);
+        Assertions.assertEquals(expected.getZobristKey(), game.getZobristKey());
+        Assertions.assertEquals(ChessGame.GameStatus.IN_PROGRESS, game.evaluateStatus());
+        Assertions.assertEquals(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING),
+                game.getBoard().getPiece(new ChessPosition(2, 5)));
+    }
+
+    @Test
+    public void legacyGameKeepsPlaying() throws InvalidMoveException {
+        ChessGame game = gson.fromJson(LEGACY_GAME, ChessGame.class);
+        game.makeMove(new ChessMove(new ChessPosition(2, 4), new ChessPosition(3, 4), null));
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, game.getTeamTurn());
+
+        ChessGame reloaded = gson.fromJson(gson.toJson(game), ChessGame.class);
+        Assertions.assertEquals(game, reloaded);
+        Assertions.assertEquals(game.getPly(), reloaded.getPly());
+    }
+
+    @Test
+    public void roundTripsCurrentFormat() throws InvalidMoveException {
+        ChessGame game = Fen.parse("r3k2r/8/8/3pP3/8/8/8/R3K2R w Kq d6 0 1");
+        ChessGame reloaded = gson.fromJson(gson.toJson(game), ChessGame.class);
+
+        Assertions.assertEquals(game, reloaded);
+        Assertions.assertEquals(game.getZobristKey(), reloaded.getZobristKey());
+        reloaded.makeMove(new ChessMove(new ChessPosition(5, 5), new ChessPosition(6, 4), null));
+    }
+}
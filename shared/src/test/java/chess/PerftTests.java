@@ -0,0 +1,58 @@
+package chess;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class PerftTests {
+    private static final long NODE_LIMIT = 100_000L;
+
+    @Test
+    public void referencePositions() {
+        for (Perft.ReferencePosition position : Perft.REFERENCE_POSITIONS) {
+            ChessGame game = Fen.parse(position.fen());
+            for (int depth = 1; depth <= position.nodes().length; depth++) {
+                long expected = position.nodes()[depth - 1];
+                if (expected > NODE_LIMIT) {
+                    break;
+                }
+                Assertions.assertEquals(expected, Perft.perft(game, depth),
+                        position.name() + " at depth " + depth);
+            }
+        }
+    }
+
+    @Test
+    public void perftRestoresGame() {
+        ChessGame game = Fen.parse(Perft.REFERENCE_POSITIONS.get(1).fen());
+        ChessGame original = Fen.parse(Perft.REFERENCE_POSITIONS.get(1).fen());
+        long key = game.getZobristKey();
+
+        Perft.perft(game, 3);
+
+        Assertions.assertEquals(original, game);
+        Assertions.assertEquals(key, game.getZobristKey());
+        Assertions.assertEquals(0, game.getPly());
+        Assertions.assertFalse(game.canUnmakeMove());
+    }
+
+    @Test
+    public void divideMatchesPerft() {
+        ChessGame game = Fen.parse(Perft.REFERENCE_POSITIONS.get(0).fen());
+
+        Map<String, Long> divided = Perft.divide(game, 3, 4);
+
+        Assertions.assertEquals(20, divided.size());
+        Assertions.assertEquals(600L, divided.get("e2e4"));
+        Assertions.assertEquals(8902L, divided.values().stream().mapToLong(Long::longValue).sum());
+        Assertions.assertEquals(8902L, Perft.perft(game, 3, 4));
+    }
+
+    @Test
+    public void badFen() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Fen.parse("8/8/8 w - -"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> Fen.parse("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNX w KQkq -"));
+    }
+}
@@ -0,0 +1,114 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class UnmakeMoveTests {
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -";
+
+    @Test
+    public void capture() throws InvalidMoveException {
+        assertRestored(KIWIPETE, move(5, 5, 7, 6, null));
+        assertRestored(KIWIPETE, move(5, 4, 6, 5, null));
+    }
+
+    @Test
+    public void castling() throws InvalidMoveException {
+        ChessGame game = assertRestored(KIWIPETE, move(1, 5, 1, 7, null));
+        Assertions.assertEquals(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK),
+                game.getBoard().getPiece(new ChessPosition(1, 6)));
+        assertRestored(KIWIPETE, move(1, 5, 1, 3, null));
+        assertRestored("r3k2r/8/8/8/8/8/8/R3K2R b KQkq -", move(8, 5, 8, 7, null));
+        assertRestored("r3k2r/8/8/8/8/8/8/R3K2R b KQkq -", move(8, 5, 8, 3, null));
+    }
+
+    @Test
+    public void movingRookLosesCastling() throws InvalidMoveException {
+        assertRestored(KIWIPETE, move(1, 8, 1, 6, null));
+    }
+
+    @Test
+    public void enPassant() throws InvalidMoveException {
+        ChessGame game = assertRestored("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+                move(5, 5, 6, 6, null));
+        Assertions.assertNull(game.getBoard().getPiece(new ChessPosition(5, 6)));
+        assertRestored("rnbqkbnr/pppp1ppp/8/8/3Pp3/8/PPP1PPPP/RNBQKBNR b KQkq d3", move(4, 5, 3, 4, null));
+    }
+
+    @Test
+    public void promotion() throws InvalidMoveException {
+        ChessGame game = assertRestored("r3k3/1P6/8/8/8/8/8/4K3 w q -",
+                move(7, 2, 8, 2, ChessPiece.PieceType.QUEEN));
+        Assertions.assertEquals(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN),
+                game.getBoard().getPiece(new ChessPosition(8, 2)));
+        // Capturing the rook also takes away black's queenside castling
+        assertRestored("r3k3/1P6/8/8/8/8/8/4K3 w q -", move(7, 2, 8, 1, ChessPiece.PieceType.KNIGHT));
+        assertRestored("4k3/8/8/8/8/8/6p1/4K2R b K -", move(2, 7, 1, 8, ChessPiece.PieceType.ROOK));
+    }
+
+    @Test
+    public void doublePush() throws InvalidMoveException {
+        assertRestored("4k3/8/8/3p4/8/8/4P3/4K3 w - -", move(2, 5, 4, 5, null));
+    }
+
+    @Test
+    public void unmakeLine() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        ChessMove[] line = {
+            move(2, 5, 4, 5, null), move(7, 4, 5, 4, null), move(4, 5, 5, 4, null), move(7, 5, 5, 5, null),
+            move(5, 4, 6, 5, null), move(8, 3, 6, 5, null), move(1, 7, 3, 6, null), move(8, 2, 6, 3, null),
+            move(1, 6, 5, 2, null), move(8, 4, 7, 4, null), move(1, 5, 1, 7, null), move(8, 5, 8, 3, null),
+        };
+        ChessGame[] before = new ChessGame[line.length];
+        long[] keys = new long[line.length];
+        for (int i = 0; i < line.length; i++) {
+            before[i] = game.copy();
+            keys[i] = game.getZobristKey();
+            game.makeMove(line[i]);
+        }
+
+        for (int i = line.length - 1; i >= 0; i--) {
+            game.unmakeMove();
+            Assertions.assertEquals(before[i], game, "after taking back move " + (i + 1));
+            Assertions.assertEquals(keys[i], game.getZobristKey(), "key after taking back move " + (i + 1));
+            Assertions.assertEquals(i, game.getPly());
+        }
+        Assertions.assertEquals(new ChessGame(), game);
+        Assertions.assertFalse(game.canUnmakeMove());
+    }
+
+    @Test
+    public void nothingToUnmake() {
+        Assertions.assertThrows(IllegalStateException.class, () -> new ChessGame().unmakeMove());
+    }
+
+    /**
+     * Makes the move from the position, checks it changed the game, then
+     * takes it back and checks board, turn, castling rights, en passant
+     * square, ply and key are as they were
+     *
+     * @return the game with the move made, before it was taken back
+     */
+    private static ChessGame assertRestored(String fen, ChessMove move) throws InvalidMoveException {
+        ChessGame game = Fen.parse(fen);
+        ChessGame original = Fen.parse(fen);
+        long key = game.getZobristKey();
+        int ply = game.getPly();
+
+        game.makeMove(move);
+        Assertions.assertNotEquals(original, game);
+        Assertions.assertEquals(ply + 1, game.getPly());
+        ChessGame moved = game.copy();
+
+        game.unmakeMove();
+        Assertions.assertEquals(original, game, fen);
+        Assertions.assertEquals(key, game.getZobristKey(), fen);
+        Assertions.assertEquals(ply, game.getPly(), fen);
+        Assertions.assertFalse(game.canUnmakeMove());
+        return moved;
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol, ChessPiece.PieceType promotion) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), promotion);
+    }
+}
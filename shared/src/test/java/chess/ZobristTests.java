@@ -0,0 +1,88 @@
+package chess;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ZobristTests {
+    @Test
+    public void incrementalKeyMatchesRecompute() {
+        for (Perft.ReferencePosition position : Perft.REFERENCE_POSITIONS) {
+            ChessGame game = Fen.parse(position.fen());
+            Random random = new Random(position.name().hashCode());
+            MoveList moves = new MoveList();
+            long[] keys = new long[200];
+            int played = 0;
+
+            while (played < keys.length) {
+                game.legalMoves(moves);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                keys[played++] = game.getZobristKey();
+                game.makeLegalMove(moves.get(random.nextInt(moves.size())));
+                // A copy works its key out from scratch rather than move by move
+                Assertions.assertEquals(game.copy().getZobristKey(), game.getZobristKey(),
+                        position.name() + " after " + played + " moves");
+            }
+
+            while (played > 0) {
+                game.unmakeMove();
+                Assertions.assertEquals(keys[--played], game.getZobristKey(), position.name());
+                Assertions.assertEquals(game.copy().getZobristKey(), game.getZobristKey(), position.name());
+            }
+        }
+    }
+
+    @Test
+    public void transposedOrdersMatch() throws InvalidMoveException {
+        ChessGame knightsFirst = play(move(1, 7, 3, 6), move(8, 2, 6, 3), move(1, 2, 3, 3), move(8, 7, 6, 6));
+        ChessGame knightsSwapped = play(move(1, 2, 3, 3), move(8, 7, 6, 6), move(1, 7, 3, 6), move(8, 2, 6, 3));
+        Assertions.assertEquals(knightsFirst, knightsSwapped);
+        Assertions.assertEquals(knightsFirst.getZobristKey(), knightsSwapped.getZobristKey());
+
+        // Knights out and back is the starting position again
+        ChessGame backHome = play(move(1, 7, 3, 6), move(8, 7, 6, 6), move(3, 6, 1, 7), move(6, 6, 8, 7));
+        Assertions.assertEquals(new ChessGame().getZobristKey(), backHome.getZobristKey());
+    }
+
+    @Test
+    public void uncapturableEnPassantIgnored() throws InvalidMoveException {
+        // Only the last move differs, and no black pawn can take either double push en passant
+        ChessGame kingsPawnLast = play(move(2, 4, 4, 4), move(7, 5, 6, 5), move(2, 5, 4, 5));
+        ChessGame queensPawnLast = play(move(2, 5, 4, 5), move(7, 5, 6, 5), move(2, 4, 4, 4));
+        Assertions.assertEquals(kingsPawnLast.getZobristKey(), queensPawnLast.getZobristKey());
+    }
+
+    @Test
+    public void capturableEnPassantCounts() throws InvalidMoveException {
+        // White's e5 pawn can take d5 en passant straight after the double push
+        ChessGame canCapture = play(move(2, 5, 4, 5), move(7, 1, 6, 1), move(4, 5, 5, 5), move(7, 4, 5, 4));
+        String placement = "rnbqkbnr/1pp1pppp/p7/3pP3/8/8/PPPP1PPP/RNBQKBNR w KQkq ";
+        Assertions.assertEquals(Fen.parse(placement + "d6").getZobristKey(), canCapture.getZobristKey());
+        Assertions.assertNotEquals(Fen.parse(placement + "-").getZobristKey(), canCapture.getZobristKey());
+    }
+
+    @Test
+    public void castlingRightsCount() throws InvalidMoveException {
+        // Kings out and back leave the same pieces, without the right to castle
+        ChessGame kingsMoved = play(move(2, 5, 4, 5), move(7, 5, 5, 5), move(1, 5, 2, 5), move(8, 5, 7, 5),
+                move(2, 5, 1, 5), move(7, 5, 8, 5));
+        ChessGame kingsHome = play(move(2, 5, 4, 5), move(7, 5, 5, 5));
+        Assertions.assertEquals(kingsHome.getBoard(), kingsMoved.getBoard());
+        Assertions.assertNotEquals(kingsHome.getZobristKey(), kingsMoved.getZobristKey());
+    }
+
+    private static ChessGame play(ChessMove... moves) throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (ChessMove move : moves) {
+            game.makeMove(move);
+        }
+        return game;
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null);
+    }
+}